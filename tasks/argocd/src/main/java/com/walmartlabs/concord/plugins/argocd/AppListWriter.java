@@ -0,0 +1,115 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the listed applications. Up to {@code maxItems} applications are kept in memory,
+ * larger lists are streamed into a JSON file.
+ */
+public class AppListWriter implements Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final int maxItems;
+
+    private final List<Map<String, Object>> items = new ArrayList<>();
+    private int count;
+
+    private Path file;
+    private JsonGenerator generator;
+
+    /**
+     * @param dir where to create the file for large lists
+     */
+    public AppListWriter(ObjectMapper objectMapper, Path dir, int maxItems) {
+        this.objectMapper = objectMapper;
+        this.dir = dir;
+        this.maxItems = maxItems;
+    }
+
+    public void add(Map<String, Object> app) throws IOException {
+        count++;
+
+        if (generator == null && items.size() < maxItems) {
+            items.add(app);
+            return;
+        }
+
+        if (generator == null) {
+            open();
+        }
+
+        generator.writeObject(app);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the collected applications or {@code null} if the list was saved into a file.
+     */
+    public List<Map<String, Object>> items() {
+        return file == null ? items : null;
+    }
+
+    /**
+     * @return the file with the applications or {@code null} if the list is small enough.
+     */
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.writeEndArray();
+            generator.close();
+            generator = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        file = Files.createTempFile(dir, "argocd-apps-", ".json");
+
+        OutputStream out = Files.newOutputStream(file);
+        generator = objectMapper.createGenerator(out);
+        generator.writeStartArray();
+
+        // flush the items collected so far
+        for (Map<String, Object> i : items) {
+            generator.writeObject(i);
+        }
+        items.clear();
+    }
+}
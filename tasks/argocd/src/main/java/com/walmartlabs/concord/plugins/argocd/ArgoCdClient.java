@@ -20,21 +20,21 @@ package com.walmartlabs.concord.plugins.argocd;
  * =====
  */
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.walmartlabs.concord.plugins.argocd.model.*;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import static okhttp3.internal.Util.EMPTY_REQUEST;
 
@@ -46,25 +46,51 @@ public class ArgoCdClient {
     private static final String AUTHORIZATION = "Authorization";
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+
     private OkHttpClient client;
     private final String baseUrl;
 
+    /**
+     * The key of the cached token in use, if any.
+     */
+    private String tokenKey;
+
     public ArgoCdClient(TaskParams in) {
-        this.client = createClient(in);
+        this.client = ArgoCdClientRegistry.getInstance().get(in);
         this.baseUrl = in.baseUrl();
     }
 
     public String auth(TaskParams.AuthParams in) throws Exception {
+        ArgoCdTokenCache tokenCache = ArgoCdTokenCache.getInstance();
+        String key = ArgoCdTokenCache.key(baseUrl, in);
+        if (key != null) {
+            String token = tokenCache.get(key);
+            if (token != null) {
+                log.info("Using a cached auth token");
+                this.tokenKey = key;
+                return authValue(token);
+            }
+        }
+
+        String token = login(in);
+        if (key != null) {
+            tokenCache.put(key, token);
+            this.tokenKey = key;
+        }
+        return authValue(token);
+    }
+
+    private String login(TaskParams.AuthParams in) throws Exception {
         if (in instanceof TaskParams.BasicAuth) {
-            return authValue(BasicAuthHandler.auth(this, (TaskParams.BasicAuth) in));
+            return BasicAuthHandler.auth(this, (TaskParams.BasicAuth) in);
         } else if(in instanceof TaskParams.LdapAuth) {
             TokenCookieJar tokenCookieJar = LdapAuthHandler.auth(this, (TaskParams.LdapAuth) in);
             this.client = client.newBuilder().cookieJar(tokenCookieJar).build();
-            return authValue(tokenCookieJar.token);
+            return tokenCookieJar.token;
         } else if (in instanceof TaskParams.AzureAuth) {
-            return authValue(AzureAuthHandler.auth((TaskParams.AzureAuth) in));
+            return AzureAuthHandler.auth((TaskParams.AzureAuth) in);
         } else if (in instanceof TaskParams.TokenAuth) {
-            return authValue(TokenAuthHandler.auth((TaskParams.TokenAuth)in));
+            return TokenAuthHandler.auth((TaskParams.TokenAuth)in);
         }
         else {
             throw new IllegalArgumentException("Unknown auth type: " + in);
@@ -85,6 +111,56 @@ public class ArgoCdClient {
         return exec(rb.build(), response -> objectMapper.readValue(response.byteStream(), Application.class));
     }
     
+    /**
+     * Lists the applications, returning only the specified fields of each application.
+     * The response is parsed item by item, so the whole list is never kept in memory.
+     *
+     * @param fields application fields, e.g. {@code status.sync.status}
+     */
+    public void listApps(String token, String project, String selector, List<String> fields, AppConsumer consumer) throws IOException {
+        HttpUrl.Builder urlBuilder = urlBuilder("api/v1/applications");
+        if (project != null) {
+            urlBuilder.addQueryParameter("projects", project);
+        }
+        if (selector != null) {
+            urlBuilder.addQueryParameter("selector", selector);
+        }
+        if (!fields.isEmpty()) {
+            // the projection is applied to the whole response
+            urlBuilder.addQueryParameter("fields", fields.stream()
+                    .map(f -> f.startsWith("items.") ? f : "items." + f)
+                    .collect(Collectors.joining(",")));
+        }
+
+        Request.Builder rb = new Request.Builder()
+                .url(urlBuilder.build())
+                .header(AUTHORIZATION, token)
+                .get();
+
+        exec(rb.build(), response -> {
+            try (JsonParser p = objectMapper.createParser(response.byteStream())) {
+                if (p.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected an object, got: " + p.getCurrentToken());
+                }
+
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    JsonToken t = p.nextToken();
+                    if (!"items".equals(name) || t != JsonToken.START_ARRAY) {
+                        // e.g. "metadata" or empty "items"
+                        p.skipChildren();
+                        continue;
+                    }
+
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(objectMapper.readMap(p));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
     public void deleteApp(String token, String app, boolean cascade, String propagationPolicy) throws IOException {
         HttpUrl url = urlBuilder("api/v1/applications/" + app)
                 .addQueryParameter("cascade", String.valueOf(cascade))
@@ -99,7 +175,20 @@ public class ArgoCdClient {
         exec(rb.build());
     }
 
-    public void patchApp(String token, String app, List<Map<String, Object>> patch) throws IOException {
+    /**
+     * Same as {@link #patchApp(String, String, List)}, but the patch is rejected with {@link ConflictException}
+     * if the application's {@code resourceVersion} is different.
+     */
+    public Application patchApp(String token, String app, String resourceVersion, List<Map<String, Object>> patch) throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>(patch.size() + 1);
+        if (resourceVersion != null) {
+            result.add(JsonPatch.test("/metadata/resourceVersion", resourceVersion));
+        }
+        result.addAll(patch);
+        return patchApp(token, app, result);
+    }
+
+    public Application patchApp(String token, String app, List<Map<String, Object>> patch) throws IOException {
         Map<String, Object> body = new HashMap<>();
         body.put("name", app);
         body.put("patch", objectMapper.writeValueAsString(patch));
@@ -110,7 +199,24 @@ public class ArgoCdClient {
                 .patch(RequestBody.create(APPLICATION_JSON, objectMapper.writeValueAsString(body)))
                 .header(AUTHORIZATION, token);
 
-        exec(rb.build());
+        return exec(rb.build(), response -> objectMapper.readValue(response.byteStream(), Application.class));
+    }
+
+    /**
+     * Applies the changes of the application's spec, see {@link JsonPatch#diff(Map, Map, String)}.
+     * The patch is rejected with {@link ConflictException} if the application was modified
+     * since {@code current} was fetched.
+     *
+     * @return the updated application or {@code current} if there are no changes.
+     */
+    public Application patchAppSpec(String token, Application current, List<Map<String, Object>> ops) throws IOException {
+        if (ops.isEmpty()) {
+            log.info("patchAppSpec ['{}'] -> no changes", current.name());
+            return current;
+        }
+
+        log.info("patchAppSpec ['{}'] -> {} change(s)", current.name(), ops.size());
+        return patchApp(token, current.name(), current.resourceVersion(), ops);
     }
 
     public Map<String, Object> updateAppSpec(String token, String app, Map<String, Object> spec) throws IOException {
@@ -123,14 +229,26 @@ public class ArgoCdClient {
     }
 
     public Application syncApp(String token, TaskParams.SyncParams in) throws IOException {
+        return syncApp(token, in.app(), in);
+    }
+
+    public Application syncApp(String token, String app, TaskParams.SyncOptions in) throws IOException {
         String revision = in.revision();
         if (revision != null) {
-            patchApp(token, in.app(), Collections.singletonList(patchRevision(in.revision())));
+            patchApp(token, app, Collections.singletonList(patchRevision(in.revision())));
         }
-        return syncApplication(token, in);
+        return syncApplication(token, app, in);
     }
 
     public Watch<WatchAppResult> watchApp(String token, String app, String fromVersion, Duration watchTimeout) throws IOException {
+        return watchApp(token, app, fromVersion, watchTimeout, Collections.emptyList());
+    }
+
+    /**
+     * @param resources the application's resources to keep in the events, all other resources are skipped
+     */
+    public Watch<WatchAppResult> watchApp(String token, String app, String fromVersion, Duration watchTimeout,
+                                          List<ResourceSelector> resources) throws IOException {
         HttpUrl url = urlBuilder("api/v1/stream/applications")
                 .addQueryParameter("name", app)
                 .addQueryParameter("resourceVersion", fromVersion)
@@ -141,7 +259,31 @@ public class ArgoCdClient {
                 .header(AUTHORIZATION, token)
                 .get();
 
-        Request request = rb.build();
+        return watch(rb.build(), watchTimeout, resources);
+    }
+
+    /**
+     * Watches all applications of the project and/or matching the label selector over a single stream.
+     */
+    public Watch<WatchAppResult> watchApps(String token, String project, String selector, Duration watchTimeout,
+                                           List<ResourceSelector> resources) throws IOException {
+        HttpUrl.Builder urlBuilder = urlBuilder("api/v1/stream/applications");
+        if (project != null) {
+            urlBuilder.addQueryParameter("projects", project);
+        }
+        if (selector != null) {
+            urlBuilder.addQueryParameter("selector", selector);
+        }
+
+        Request.Builder rb = new Request.Builder()
+                .url(urlBuilder.build())
+                .header(AUTHORIZATION, token)
+                .get();
+
+        return watch(rb.build(), watchTimeout, resources);
+    }
+
+    private Watch<WatchAppResult> watch(Request request, Duration watchTimeout, List<ResourceSelector> resources) throws IOException {
         Call call = toWatchClient(client, watchTimeout).newCall(request);
         Response response = null;
         ResponseBody body = null;
@@ -151,7 +293,7 @@ public class ArgoCdClient {
 
             assertResponse(request, response, body);
 
-            return new Watch<>(call, body, str -> convert(str, WatchAppResult.class));
+            return new Watch<>(call, body, watchAppReader(resources));
         } catch (Exception e) {
             if (body != null) {
                 body.close();
@@ -164,6 +306,24 @@ public class ArgoCdClient {
         }
     }
 
+    /**
+     * Reads only the fields needed to check the application's state.
+     */
+    private Watch.EventReader<WatchAppResult> watchAppReader(List<ResourceSelector> resources) {
+        return new Watch.EventReader<WatchAppResult>() {
+
+            @Override
+            public JsonParser createParser(ResponseBody response) throws IOException {
+                return objectMapper.createParser(response.byteStream());
+            }
+
+            @Override
+            public WatchAppResult read(JsonParser p) throws IOException {
+                return objectMapper.treeToValue(WatchEvents.read(p, resources), WatchAppResult.class);
+            }
+        };
+    }
+
     public HttpUrl.Builder urlBuilder(String path) {
         HttpUrl url = HttpUrl.parse(baseUrl);
         if (url == null) {
@@ -173,63 +333,206 @@ public class ArgoCdClient {
                 .addPathSegments(path);
     }
 
+    /**
+     * Waits for the application to reach the target state. If the watch stream drops, the watch
+     * is resumed from the last seen resource version (with a backoff) until {@code waitTimeout} runs out.
+     */
     public Application waitForSync(String token, String app, String resourceVersion, Duration waitTimeout, WaitWatchParams p) throws IOException {
+        Reconnect reconnect = new Reconnect(waitTimeout);
+        String lastVersion = resourceVersion;
         boolean refresh = false;
-        try (Watch<WatchAppResult> w = watchApp(token, app, resourceVersion, waitTimeout)) {
-            while (w.hasNext()) {
-                WatchAppResult result = w.next();
-                if (!result.error().isEmpty()) {
-                    throw new RuntimeException("Error waiting for status: " + result.error());
-                }
 
-                if (result.application() == null) {
-                    throw new RuntimeException("Error waiting for status: no application");
-                }
+        while (true) {
+            try (Watch<WatchAppResult> w = watchApp(token, app, lastVersion, reconnect.remaining(), p.resources())) {
+                while (w.hasNext()) {
+                    Application a = toApplication(w.next());
+                    reconnect.reset();
 
-                boolean operationInProgress = false;
+                    if (a.resourceVersion() != null) {
+                        lastVersion = a.resourceVersion();
+                    }
 
-                Application a = result.application();
-                // consider the operation is in progress
-                if (a.operation() != null) {
-                    // if it just got requested
-                    operationInProgress = true;
-                    if (!Objects.requireNonNull(a.operation()).dryRun()) {
+                    // if the operation just got requested
+                    if (a.operation() != null && !Objects.requireNonNull(a.operation()).dryRun()) {
                         refresh = true;
                     }
-                } else if (a.status().operationState() != null) {
-                    Application.OperationState opState = Objects.requireNonNull(a.status().operationState());
-                    OffsetDateTime finishedAt = opState.finishedAt();
-                    OffsetDateTime reconciledAt = a.status().reconciledAt();
-                    Application.Operation operation = opState.operation();
-
-                    if (finishedAt == null) {
-                        // if it is not finished yet
-                        operationInProgress = true;
-                    } else if (operation != null && !operation.dryRun() && (reconciledAt == null || reconciledAt.isBefore(finishedAt))) {
-                        // if it is just finished and we need to wait for controller to reconcile app once after syncing
-                        operationInProgress = true;
+
+                    if (isReady(a, p)) {
+                        // the events are partial, see WatchEvents
+                        return getApp(token, app, refresh);
                     }
                 }
 
-                // Wait on the application as a whole
-                // TODO: support for defined resources
-                boolean selectedResourcesAreReady = checkResourceStatus(p, a.status().health().status(), a.status().sync().status(), a.operation());
+                log.warn("waitForSync ['{}'] -> the watch stream ended, resuming from {}", app, lastVersion);
+            } catch (IOException e) {
+                log.warn("waitForSync ['{}'] -> can't open the watch stream, retrying: {}", app, e.getMessage());
+            } catch (RuntimeException e) {
+                if (!isDropped(e)) {
+                    throw e;
+                }
+                log.warn("waitForSync ['{}'] -> the watch stream dropped, resuming from {}: {}", app, lastVersion, e.getCause().getMessage());
+            }
+
+            reconnect.await();
+        }
+    }
+
+    /**
+     * Same as {@link #waitForSync(String, String, String, Duration, WaitWatchParams)}, but waits for
+     * several applications using a single watch stream.
+     * The stream is reopened from the current state of the applications if it drops.
+     *
+     * @param onReady called for each application as soon as it's ready
+     */
+    public void waitForSyncMany(String token, Collection<String> apps, String project, String selector,
+                                Duration waitTimeout, WaitWatchParams p,
+                                BiConsumer<String, Application> onReady) throws IOException {
+
+        Reconnect reconnect = new Reconnect(waitTimeout);
+        Set<String> pending = new HashSet<>(apps);
+        Set<String> refresh = new HashSet<>();
+
+        while (true) {
+            try (Watch<WatchAppResult> w = watchApps(token, project, selector, reconnect.remaining(), p.resources())) {
+                while (w.hasNext()) {
+                    Application a = toApplication(w.next());
+                    reconnect.reset();
+
+                    String app = a.name();
+                    if (!pending.contains(app)) {
+                        // some other application of the project
+                        continue;
+                    }
 
-                if (selectedResourcesAreReady && (!operationInProgress || !p.watchOperation())) {
-                    if (refresh) {
-                        return getApp(token, app, true);
+                    if (a.operation() != null && !Objects.requireNonNull(a.operation()).dryRun()) {
+                        refresh.add(app);
+                    }
+
+                    if (isReady(a, p)) {
+                        // the app stays pending if the fetch fails, the reopened stream reports it again
+                        Application ready = getApp(token, app, refresh.contains(app));
+                        pending.remove(app);
+                        onReady.accept(app, ready);
+
+                        if (pending.isEmpty()) {
+                            return;
+                        }
                     }
-                    return a;
                 }
+
+                log.warn("waitForSyncMany -> the watch stream ended, reopening");
+            } catch (IOException e) {
+                log.warn("waitForSyncMany -> can't open the watch stream, retrying: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                if (!isDropped(e)) {
+                    throw e;
+                }
+                log.warn("waitForSyncMany -> the watch stream dropped, reopening: {}", e.getCause().getMessage());
+            }
+
+            reconnect.await();
+        }
+    }
+
+    /**
+     * @return {@code true} if the exception is a network error while reading the watch stream.
+     */
+    private static boolean isDropped(RuntimeException e) {
+        // timeouts are reported without a cause
+        return e.getCause() instanceof IOException;
+    }
+
+    private static Application toApplication(WatchAppResult result) {
+        if (!result.error().isEmpty()) {
+            throw new RuntimeException("Error waiting for status: " + result.error());
+        }
+
+        if (result.application() == null) {
+            throw new RuntimeException("Error waiting for status: no application");
+        }
+
+        return result.application();
+    }
+
+    private static boolean isReady(Application a, WaitWatchParams p) {
+        boolean operationInProgress = false;
+
+        // consider the operation is in progress
+        if (a.operation() != null) {
+            // if it just got requested
+            operationInProgress = true;
+        } else if (a.status().operationState() != null) {
+            Application.OperationState opState = Objects.requireNonNull(a.status().operationState());
+            OffsetDateTime finishedAt = opState.finishedAt();
+            OffsetDateTime reconciledAt = a.status().reconciledAt();
+            Application.Operation operation = opState.operation();
+
+            if (finishedAt == null) {
+                // if it is not finished yet
+                operationInProgress = true;
+            } else if (operation != null && !operation.dryRun() && (reconciledAt == null || reconciledAt.isBefore(finishedAt))) {
+                // if it is just finished and we need to wait for controller to reconcile app once after syncing
+                operationInProgress = true;
             }
         }
-        return null;
+
+        boolean selectedResourcesAreReady;
+        if (p.resources().isEmpty()) {
+            // Wait on the application as a whole
+            selectedResourcesAreReady = checkResourceStatus(p, a.status().health().status(), a.status().sync().status(), a.operation());
+        } else {
+            selectedResourcesAreReady = checkSelectedResources(a, p);
+        }
+
+        return selectedResourcesAreReady && (!operationInProgress || !p.watchOperation());
     }
 
     public OkHttpClient.Builder newBuilder() {
         return this.client.newBuilder();
     }
 
+    /**
+     * @return {@code true} if each selector matches at least one resource and all matching resources are ready.
+     */
+    private static boolean checkSelectedResources(Application a, WaitWatchParams p) {
+        List<Map<?, ?>> resources = new ArrayList<>();
+        for (Object r : a.status().resources()) {
+            if (r instanceof Map) {
+                resources.add((Map<?, ?>) r);
+            }
+        }
+
+        for (ResourceSelector s : p.resources()) {
+            boolean found = false;
+            for (Map<?, ?> r : resources) {
+                if (!s.matches(r)) {
+                    continue;
+                }
+
+                found = true;
+                if (!checkResourceStatus(p, resourceHealth(r), (String) r.get("status"), a.operation())) {
+                    return false;
+                }
+            }
+
+            if (!found) {
+                // not created yet
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String resourceHealth(Map<?, ?> resource) {
+        Object health = resource.get("health");
+        if (health instanceof Map) {
+            return (String) ((Map<?, ?>) health).get("status");
+        }
+        // resources without health checks, e.g. ConfigMaps
+        return HealthStatus.HEALTHY.value();
+    }
+
     private static boolean checkResourceStatus(WaitWatchParams p, String healthStatus, String syncStatus, Application.Operation operation) {
         boolean healthCheckPassed = true;
         if (p.watchSuspended() && p.watchHealth()) {
@@ -320,9 +623,9 @@ public class ArgoCdClient {
 
     }
 
-    private Application syncApplication(String token, TaskParams.SyncParams in) throws IOException {
+    private Application syncApplication(String token, String app, TaskParams.SyncOptions in) throws IOException {
         Map<String, Object> body = new HashMap<>();
-        if (in.resources() != null) {
+        if (in.resources() != null && !in.resources().isEmpty()) {
             body.put("resources", in.resources());
         }
 
@@ -348,22 +651,13 @@ public class ArgoCdClient {
         }
 
         Request.Builder rb = new Request.Builder()
-                .url(urlBuilder("api/v1/applications/").addPathSegment(in.app()).addPathSegment("sync").build())
+                .url(urlBuilder("api/v1/applications/").addPathSegment(app).addPathSegment("sync").build())
                 .post(request)
                 .header(AUTHORIZATION, token);
 
         return exec(rb.build(), response -> objectMapper.readValue(response.byteStream(), Application.class));
     }
 
-    private <T> T convert(String content, Class<T> valueType) {
-        try {
-            return objectMapper.readValue(content, valueType);
-        } catch (Exception e) {
-            log.error("Can't read '" + valueType.getName() + "' from: '" + content + "'");
-            throw new RuntimeException(e);
-        }
-    }
-
     private void exec(Request request) throws IOException {
         exec(request, response -> null);
     }
@@ -377,7 +671,12 @@ public class ArgoCdClient {
         }
     }
 
-    private static void assertResponse(Request request, Response response, ResponseBody body) throws IOException {
+    private void assertResponse(Request request, Response response, ResponseBody body) throws IOException {
+        if (response.code() == 401 && tokenKey != null) {
+            // revoked or otherwise invalid, the next call will login again
+            ArgoCdTokenCache.getInstance().invalidate(tokenKey);
+        }
+
         if (!response.isSuccessful()) {
             if (body != null) {
                 throw exception(request, response.code(), body.string());
@@ -390,6 +689,9 @@ public class ArgoCdClient {
         }
     }
 
+    /**
+     * Derived from the shared client, so the watch shares the connection pool and the dispatcher.
+     */
     private static OkHttpClient toWatchClient(OkHttpClient client, Duration watchTimeout) {
         OkHttpClient.Builder builder = client.newBuilder()
                 .callTimeout(watchTimeout != null ? watchTimeout : Duration.ZERO)
@@ -402,7 +704,22 @@ public class ArgoCdClient {
     }
 
     static RuntimeException exception(Request request, int code, String msg) {
-        return new RuntimeException("Error occurred with API call (" + request.url() + "): status code:" + code + ", error: " + msg);
+        String message = "Error occurred with API call (" + request.url() + "): status code:" + code + ", error: " + msg;
+        if (isConflict(code, msg)) {
+            return new ConflictException(message);
+        }
+        return new RuntimeException(message);
+    }
+
+    private static boolean isConflict(int code, String msg) {
+        if (code == 409) {
+            return true;
+        }
+
+        // ArgoCD doesn't always map the errors to 409:
+        // a failed JSON Patch "test" operation or an update with a stale resourceVersion
+        return msg != null && (msg.contains("testing value /metadata/resourceVersion failed") ||
+                msg.contains("the object has been modified"));
     }
 
     private static String authValue(String token) {
@@ -413,45 +730,58 @@ public class ArgoCdClient {
         T convert(ResponseBody response) throws IOException;
     }
 
-    private static OkHttpClient createClient(TaskParams in) {
-        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
-                .connectTimeout(in.connectTimeout(), TimeUnit.SECONDS)
-                .readTimeout(in.readTimeout(), TimeUnit.SECONDS)
-                .writeTimeout(in.writeTimeout(), TimeUnit.SECONDS);
+    public interface AppConsumer {
+        void accept(Map<String, Object> app) throws IOException;
+    }
+
+    /**
+     * Reconnection backoff within the overall wait timeout.
+     */
+    private static final class Reconnect {
+
+        private static final long INITIAL_DELAY_MS = 1000;
+        private static final long MAX_DELAY_MS = 30_000;
+
+        private final long deadline;
+        private long delayMs = INITIAL_DELAY_MS;
 
-        if (in.debug()) {
-            clientBuilder.addInterceptor(new HttpLoggingInterceptor(log::info).setLevel(HttpLoggingInterceptor.Level.BODY));
+        private Reconnect(Duration timeout) {
+            this.deadline = timeout != null ? System.currentTimeMillis() + timeout.toMillis() : Long.MAX_VALUE;
         }
 
-        if (!in.validateCerts()) {
-            try {
-                final TrustManager[] tms = new TrustManager[]{
-                        new X509TrustManager() {
-                            @Override
-                            public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) {
-                            }
-
-                            @Override
-                            public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) {
-                            }
-
-                            @Override
-                            public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                                return new java.security.cert.X509Certificate[0];
-                            }
-                        }
-                };
-                final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-                sslContext.init(null, tms, new java.security.SecureRandom());
-                SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-                clientBuilder
-                        .sslSocketFactory(sslSocketFactory, (X509TrustManager) tms[0])
-                        .hostnameVerifier((hostname, session) -> true);
-            } catch (Exception e) {
-                throw new RuntimeException("Error disabling certificate validation: " + e.getMessage());
+        /**
+         * @return the time left for the watch or {@code null} if there's no timeout.
+         */
+        Duration remaining() {
+            if (deadline == Long.MAX_VALUE) {
+                return null;
+            }
+
+            long ms = deadline - System.currentTimeMillis();
+            if (ms <= 0) {
+                throw new RuntimeException("Timeout waiting");
             }
+            return Duration.ofMillis(ms);
         }
 
-        return clientBuilder.build();
+        void reset() {
+            delayMs = INITIAL_DELAY_MS;
+        }
+
+        void await() {
+            long ms = Math.min(delayMs, deadline - System.currentTimeMillis());
+            if (ms <= 0) {
+                throw new RuntimeException("Timeout waiting");
+            }
+
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting", e);
+            }
+
+            delayMs = Math.min(delayMs * 2, MAX_DELAY_MS);
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of HTTP clients keyed by the base URL, the TLS and the timeout settings.
+ * <p>
+ * All clients are derived from the same root client, so they share the connection pool
+ * and the dispatcher, e.g. a sync followed by a get reuses the connection.
+ * Clients derived from the registered ones (see {@link OkHttpClient#newBuilder()}) share them as well.
+ */
+public class ArgoCdClientRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ArgoCdClientRegistry.class);
+
+    private static final int MAX_CLIENTS = 32;
+
+    private static final ArgoCdClientRegistry INSTANCE = new ArgoCdClientRegistry(MAX_CLIENTS);
+
+    public static ArgoCdClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxClients;
+    private final OkHttpClient root;
+
+    // access-ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, OkHttpClient> clients = new LinkedHashMap<>(16, 0.75f, true);
+
+    ArgoCdClientRegistry(int maxClients) {
+        this.maxClients = maxClients;
+        this.root = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool())
+                .dispatcher(new Dispatcher())
+                .build();
+    }
+
+    public synchronized OkHttpClient get(TaskParams in) {
+        Key key = new Key(in);
+
+        OkHttpClient client = clients.get(key);
+        if (client == null) {
+            client = createClient(in);
+            clients.put(key, client);
+
+            Iterator<OkHttpClient> it = clients.values().iterator();
+            while (clients.size() > maxClients && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        return client;
+    }
+
+    public synchronized void clear() {
+        clients.clear();
+    }
+
+    private OkHttpClient createClient(TaskParams in) {
+        OkHttpClient.Builder clientBuilder = root.newBuilder()
+                .connectTimeout(in.connectTimeout(), TimeUnit.SECONDS)
+                .readTimeout(in.readTimeout(), TimeUnit.SECONDS)
+                .writeTimeout(in.writeTimeout(), TimeUnit.SECONDS);
+
+        if (in.debug()) {
+            clientBuilder.addInterceptor(new HttpLoggingInterceptor(log::info).setLevel(HttpLoggingInterceptor.Level.BODY));
+        }
+
+        if (!in.validateCerts()) {
+            try {
+                final TrustManager[] tms = new TrustManager[]{
+                        new X509TrustManager() {
+                            @Override
+                            public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType) {
+                            }
+
+                            @Override
+                            public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType) {
+                            }
+
+                            @Override
+                            public java.security.cert.X509Certificate[] getAcceptedIssuers() {
+                                return new java.security.cert.X509Certificate[0];
+                            }
+                        }
+                };
+                final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+                sslContext.init(null, tms, new java.security.SecureRandom());
+                clientBuilder
+                        .sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) tms[0])
+                        .hostnameVerifier((hostname, session) -> true);
+            } catch (Exception e) {
+                throw new RuntimeException("Error disabling certificate validation: " + e.getMessage());
+            }
+        }
+
+        return clientBuilder.build();
+    }
+
+    private static final class Key {
+
+        private final String baseUrl;
+        private final boolean validateCerts;
+        private final boolean debug;
+        private final long connectTimeout;
+        private final long readTimeout;
+        private final long writeTimeout;
+
+        private Key(TaskParams in) {
+            this.baseUrl = in.baseUrl();
+            this.validateCerts = in.validateCerts();
+            this.debug = in.debug();
+            this.connectTimeout = in.connectTimeout();
+            this.readTimeout = in.readTimeout();
+            this.writeTimeout = in.writeTimeout();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return validateCerts == key.validateCerts
+                    && debug == key.debug
+                    && connectTimeout == key.connectTimeout
+                    && readTimeout == key.readTimeout
+                    && writeTimeout == key.writeTimeout
+                    && Objects.equals(baseUrl, key.baseUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseUrl, validateCerts, debug, connectTimeout, readTimeout, writeTimeout);
+        }
+    }
+}
@@ -30,13 +30,22 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Named("argocd")
 public class ArgoCdTask implements Task {
 
     private final static Logger log = LoggerFactory.getLogger(ArgoCdTask.class);
 
+    private static final long CONFLICT_RETRY_DELAY_MS = 100;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final Context context;
     private final LockService lockService;
@@ -57,9 +66,15 @@ public class ArgoCdTask implements Task {
             case GET: {
                 return processGetAction((TaskParams.GetParams) params);
             }
+            case LIST: {
+                return processListAction((TaskParams.ListParams) params);
+            }
             case SYNC: {
                 return processSyncAction((TaskParams.SyncParams) params);
             }
+            case SYNCMANY: {
+                return processSyncManyAction((TaskParams.SyncManyParams) params);
+            }
             case DELETE: {
                 return processDeleteAction((TaskParams.DeleteAppParams) params);
             }
@@ -83,40 +98,38 @@ public class ArgoCdTask implements Task {
 
     private TaskResult processUpdateSpecAction(TaskParams.UpdateSpecParams in) throws Exception {
         assertProjectInfo(context);
-        lockService.projectLock(in.app());
         log.info("Updating '{}' app spec", in.app());
 
         record(in.recordEvents(), in.app(), in.baseUrl(), in.action().toString());
 
-        try {
-            ArgoCdClient client = new ArgoCdClient(in);
-            String token = client.auth(in.auth());
+        ArgoCdClient client = new ArgoCdClient(in);
+        String token = client.auth(in.auth());
 
+        return modify(in, in.app(), () -> {
             Application app = client.getApp(token, in.app(), false);
             Map<String, Object> appSpec = app.spec();
 
             appSpec = ConfigurationUtils.deepMerge(appSpec, in.spec());
 
-            Map<String, Object> result = client.updateAppSpec(token, in.app(), appSpec);
+            List<Map<String, Object>> ops = JsonPatch.diff(app.spec(), appSpec, "/spec");
+            Application result = client.patchAppSpec(token, app, ops);
 
             return TaskResult.success()
-                    .value("spec", result);
-        } finally {
-            lockService.projectUnlock(in.app());
-        }
+                    .value("changed", !ops.isEmpty())
+                    .value("spec", result.spec());
+        });
     }
 
     private TaskResult processSetParamsAction(TaskParams.SetAppParams in) throws Exception {
         assertProjectInfo(context);
-        lockService.projectLock(in.app());
         log.info("Setting '{}' app params", in.app());
 
         record(in.recordEvents(), in.app(), in.baseUrl(), in.action().toString());
 
-        try {
-            ArgoCdClient client = new ArgoCdClient(in);
-            String token = client.auth(in.auth());
+        ArgoCdClient client = new ArgoCdClient(in);
+        String token = client.auth(in.auth());
 
+        return modify(in, in.app(), () -> {
             Application app = client.getApp(token, in.app(), false);
             Map<String, Object> appSpec = app.spec();
 
@@ -126,13 +139,13 @@ public class ArgoCdTask implements Task {
             }
             appSpec = MapUtils.set(appSpec, "source.helm.parameters", appHelmParams);
 
-            Map<String, Object> result = client.updateAppSpec(token, in.app(), appSpec);
+            List<Map<String, Object>> ops = JsonPatch.diff(app.spec(), appSpec, "/spec");
+            Application result = client.patchAppSpec(token, app, ops);
 
             return TaskResult.success()
-                    .value("spec", result);
-        } finally {
-            lockService.projectUnlock(in.app());
-        }
+                    .value("changed", !ops.isEmpty())
+                    .value("spec", result.spec());
+        });
     }
 
     private TaskResult processGetAction(TaskParams.GetParams in) throws Exception {
@@ -147,9 +160,32 @@ public class ArgoCdTask implements Task {
                 .value("app", toMap(app));
     }
 
+    private TaskResult processListAction(TaskParams.ListParams in) throws Exception {
+        ArgoCdClient client = new ArgoCdClient(in);
+        log.info("Listing apps (project: {}, selector: {})", in.project(), in.selector());
+        String token = client.auth(in.auth());
+
+        Path workDir = context.workingDirectory();
+        try (AppListWriter w = new AppListWriter(objectMapper, workDir.resolve(".argocd"), in.maxItems())) {
+            client.listApps(token, in.project(), in.selector(), in.fields(), w::add);
+
+            log.info("Found {} apps", w.count());
+
+            TaskResult.SimpleResult result = TaskResult.success()
+                    .value("count", w.count());
+
+            if (w.file() != null) {
+                // too large for a variable
+                return result.value("file", workDir.relativize(w.file()).toString());
+            }
+            return result.value("apps", w.items());
+        }
+    }
+
     private TaskResult processSyncAction(TaskParams.SyncParams in) throws Exception {
         assertProjectInfo(context);
         lockService.projectLock(in.app());
+        boolean locked = true;
         log.info("Synchronizing '{}' app", in.app());
 
         record(in.recordEvents(), in.app(), in.baseUrl(), in.action().toString());
@@ -158,14 +194,129 @@ public class ArgoCdTask implements Task {
             ArgoCdClient client = new ArgoCdClient(in);
             String token = client.auth(in.auth());
             Application app = client.syncApp(token, in);
-            app = client.waitForSync(token, in.app(), app.resourceVersion(), in.syncTimeout(), toWatchParams(in.watchHealth()));
+
+            if (in.optimisticLocking()) {
+                // the sync is requested, don't block other modifications while waiting
+                lockService.projectUnlock(in.app());
+                locked = false;
+            }
+
+            app = client.waitForSync(token, in.app(), app.resourceVersion(), in.syncTimeout(), toWatchParams(in));
             return TaskResult.success()
                     .value("app", toMap(app));
         } finally {
-            lockService.projectUnlock(in.app());
+            if (locked) {
+                lockService.projectUnlock(in.app());
+            }
+        }
+    }
+
+    private TaskResult processSyncManyAction(TaskParams.SyncManyParams in) throws Exception {
+        assertProjectInfo(context);
+
+        // validated before anything is synchronized
+        String project = in.project();
+        String selector = in.selector();
+
+        // always in the same order, so concurrent processes can't deadlock
+        List<String> apps = new ArrayList<>(new TreeSet<>(in.apps()));
+        for (String app : apps) {
+            lockService.projectLock(app);
+        }
+        boolean locked = true;
+
+        log.info("Synchronizing {} apps", apps.size());
+
+        try {
+            ArgoCdClient client = new ArgoCdClient(in);
+            String token = client.auth(in.auth());
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            List<String> synced = new ArrayList<>();
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(in.parallelism(), apps.size()));
+            try {
+                Map<String, Future<Application>> futures = new LinkedHashMap<>();
+                for (String app : apps) {
+                    futures.put(app, executor.submit(() -> {
+                        record(in.recordEvents(), app, in.baseUrl(), in.action().toString());
+                        return client.syncApp(token, app, in);
+                    }));
+                }
+
+                for (Map.Entry<String, Future<Application>> e : futures.entrySet()) {
+                    try {
+                        e.getValue().get();
+                        synced.add(e.getKey());
+                    } catch (ExecutionException ex) {
+                        log.warn("Error while synchronizing '{}' app: {}", e.getKey(), ex.getCause().getMessage());
+                        results.put(e.getKey(), failure(ex.getCause().getMessage()));
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (in.optimisticLocking()) {
+                unlock(apps);
+                locked = false;
+            }
+
+            if (!synced.isEmpty()) {
+                try {
+                    client.waitForSyncMany(token, synced, project, selector, in.syncTimeout(), toWatchParams(in),
+                            (app, a) -> {
+                                log.info("'{}' app is synchronized", app);
+                                results.put(app, success(a));
+                            });
+                } catch (RuntimeException e) {
+                    // e.g. a timeout, the apps which are ready already keep their results
+                    for (String app : synced) {
+                        if (!results.containsKey(app)) {
+                            log.warn("Error while waiting for '{}' app: {}", app, e.getMessage());
+                            results.put(app, failure(e.getMessage()));
+                        }
+                    }
+                }
+            }
+
+            List<String> failed = new ArrayList<>();
+            for (String app : apps) {
+                if (!Boolean.TRUE.equals(((Map<?, ?>) results.get(app)).get("ok"))) {
+                    failed.add(app);
+                }
+            }
+
+            return TaskResult.of(failed.isEmpty())
+                    .value("apps", results)
+                    .value("failed", failed);
+        } finally {
+            if (locked) {
+                unlock(apps);
+            }
         }
     }
 
+    private void unlock(List<String> apps) throws Exception {
+        for (String app : apps) {
+            lockService.projectUnlock(app);
+        }
+    }
+
+    private Map<String, Object> success(Application app) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("ok", true);
+        result.put("app", toMap(app));
+        return result;
+    }
+
+    private static Map<String, Object> failure(String error) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("ok", false);
+        result.put("error", error);
+        return result;
+    }
+
     private TaskResult processCreateAction(TaskParams.CreateUpdateParams in) throws Exception {
         assertProjectInfo(context);
         lockService.projectLock(in.app());
@@ -178,7 +329,7 @@ public class ArgoCdTask implements Task {
             String token = client.auth(in.auth());
             Application app = client.createApp(token, in);
             app = client.waitForSync(token, in.app(), app.resourceVersion(), in.syncTimeout(),
-                    toWatchParams(false));
+                    toWatchParams(false, Collections.emptyList()));
             return TaskResult.success()
                     .value("app", toMap(app));
         } finally {
@@ -205,19 +356,65 @@ public class ArgoCdTask implements Task {
 
     private TaskResult processPatchAction(TaskParams.PatchParams in) throws Exception {
         assertProjectInfo(context);
-        lockService.projectLock(in.app());
         log.info("Patching '{}' app", in.app());
 
         record(in.recordEvents(), in.app(), in.baseUrl(), in.action().toString());
 
-        try {
-            ArgoCdClient client = new ArgoCdClient(in);
-            String token = client.auth(in.auth());
-            client.patchApp(token, in.app(), in.patches());
+        ArgoCdClient client = new ArgoCdClient(in);
+        String token = client.auth(in.auth());
+
+        if (!in.optimisticLocking()) {
+            return modify(in, in.app(), () -> {
+                client.patchApp(token, in.app(), in.patches());
+                return TaskResult.success();
+            });
+        }
+
+        return modify(in, in.app(), () -> {
+            Application app = client.getApp(token, in.app(), false);
+            client.patchApp(token, in.app(), app.resourceVersion(), in.patches());
             return TaskResult.success();
-        } finally {
-            lockService.projectUnlock(in.app());
+        });
+    }
+
+    /**
+     * Runs the modification of the application holding the project lock, unless
+     * {@link TaskParams.ConcurrencyOptions#optimisticLocking()} is enabled, and retries it
+     * on {@link ConflictException}. The modification must re-read the application: the lock
+     * only excludes other Concord processes, the controller keeps updating the application's status.
+     */
+    private <T> T modify(TaskParams.ConcurrencyOptions in, String app, Callable<T> modification) throws Exception {
+        if (!in.optimisticLocking()) {
+            lockService.projectLock(app);
+            try {
+                return retryOnConflict(in, app, modification);
+            } finally {
+                lockService.projectUnlock(app);
+            }
         }
+
+        return retryOnConflict(in, app, modification);
+    }
+
+    private static <T> T retryOnConflict(TaskParams.ConcurrencyOptions in, String app, Callable<T> modification) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return modification.call();
+            } catch (ConflictException e) {
+                if (attempt >= in.maxRetries()) {
+                    throw e;
+                }
+
+                log.warn("'{}' app was modified concurrently, retrying ({}/{})", app, attempt + 1, in.maxRetries());
+                sleep(attempt);
+            }
+        }
+    }
+
+    private static void sleep(int attempt) throws InterruptedException {
+        // exponential backoff with jitter, so the retrying processes don't collide again
+        long delay = CONFLICT_RETRY_DELAY_MS * (1L << Math.min(attempt, 5));
+        Thread.sleep(delay + ThreadLocalRandom.current().nextLong(CONFLICT_RETRY_DELAY_MS));
     }
 
     private Map<String, Object> toMap(Application app) {
@@ -255,12 +452,17 @@ public class ArgoCdTask implements Task {
         return result;
     }
 
-    private static WaitWatchParams toWatchParams(boolean watchHealth) {
+    private static WaitWatchParams toWatchParams(TaskParams.SyncOptions in) {
+        return toWatchParams(in.watchHealth(), in.waitResources());
+    }
+
+    private static WaitWatchParams toWatchParams(boolean watchHealth, List<ResourceSelector> resources) {
         return WaitWatchParams.builder()
                 .watchSync(true)
                 .watchHealth(watchHealth)
                 .watchOperation(false)
                 .watchSuspended(false)
+                .resources(resources)
                 .build();
     }
 
@@ -0,0 +1,154 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM-wide cache of the Argo CD auth tokens keyed by the base URL, the auth type and the principal.
+ * <p>
+ * Tokens are reused until shortly before their expiration time (the JWT {@code exp} claim),
+ * so consecutive actions don't repeat the login.
+ */
+public class ArgoCdTokenCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ArgoCdTokenCache.class);
+
+    /**
+     * Tokens are refreshed this long before they expire.
+     */
+    private static final long REFRESH_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Used for tokens without the expiration time.
+     */
+    private static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final ArgoCdTokenCache tokenCache = new ArgoCdTokenCache();
+
+    public static ArgoCdTokenCache getInstance() {
+        return tokenCache;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+
+    ArgoCdTokenCache() {
+    }
+
+    /**
+     * @return the cache key or {@code null} if the tokens of the specified auth type are not cached.
+     */
+    public static String key(String baseUrl, TaskParams.AuthParams auth) {
+        if (auth instanceof TaskParams.BasicAuth) {
+            TaskParams.BasicAuth a = (TaskParams.BasicAuth) auth;
+            return key("basic", baseUrl, a.username(), a.password());
+        } else if (auth instanceof TaskParams.LdapAuth) {
+            TaskParams.LdapAuth a = (TaskParams.LdapAuth) auth;
+            return key("ldap", baseUrl, a.connectorId(), a.username(), a.password());
+        } else if (auth instanceof TaskParams.AzureAuth) {
+            TaskParams.AzureAuth a = (TaskParams.AzureAuth) auth;
+            return key("azure", baseUrl, a.clientId(), a.authority(), String.join(",", a.scope()), a.username(), a.password());
+        }
+        return null;
+    }
+
+    /**
+     * @return a cached token or {@code null} if there's no valid token.
+     */
+    public String get(String key) {
+        Entry e = tokens.get(key);
+        if (e == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= e.expiresAt - REFRESH_MARGIN_MS) {
+            tokens.remove(key, e);
+            return null;
+        }
+
+        return e.token;
+    }
+
+    public void put(String key, String token) {
+        tokens.put(key, new Entry(token, expiresAt(token)));
+    }
+
+    public void invalidate(String key) {
+        tokens.remove(key);
+    }
+
+    public void clear() {
+        tokens.clear();
+    }
+
+    /**
+     * @return the token's expiration time (epoch millis) taken from the JWT {@code exp} claim.
+     */
+    long expiresAt(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length == 3) {
+            try {
+                byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+                Object exp = objectMapper.readMap(new ByteArrayInputStream(payload)).get("exp");
+                if (exp instanceof Number) {
+                    return TimeUnit.SECONDS.toMillis(((Number) exp).longValue());
+                }
+            } catch (Exception e) {
+                log.warn("expiresAt -> can't parse the token: {}", e.getMessage());
+            }
+        }
+
+        return System.currentTimeMillis() + DEFAULT_TTL_MS;
+    }
+
+    private static String key(String... parts) {
+        // the credentials are part of the key, so changed credentials mean a new login
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+            return parts[0] + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String token;
+        private final long expiresAt;
+
+        private Entry(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
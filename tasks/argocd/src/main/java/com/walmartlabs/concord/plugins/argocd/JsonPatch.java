@@ -0,0 +1,130 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Computes JSON Patch (RFC 6902) operations between two JSON documents.
+ * <p>
+ * Objects are compared field by field, arrays and scalars are replaced as a whole.
+ */
+public final class JsonPatch {
+
+    /**
+     * @param path the JSON pointer of the compared documents, e.g. {@code /spec}
+     * @return operations which turn {@code source} into {@code target}, empty if the documents are equal.
+     */
+    public static List<Map<String, Object>> diff(Map<String, Object> source, Map<String, Object> target, String path) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        diff(source, target, path, result);
+        return result;
+    }
+
+    /**
+     * @return the operation which fails the whole patch if the value at the path is different.
+     */
+    public static Map<String, Object> test(String path, Object value) {
+        return op("test", path, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void diff(Map<String, Object> source, Map<String, Object> target, String path, List<Map<String, Object>> result) {
+        for (Map.Entry<String, Object> e : source.entrySet()) {
+            if (!target.containsKey(e.getKey())) {
+                Map<String, Object> op = new HashMap<>();
+                op.put("op", "remove");
+                op.put("path", path + "/" + escape(e.getKey()));
+                result.add(op);
+            }
+        }
+
+        for (Map.Entry<String, Object> e : target.entrySet()) {
+            String p = path + "/" + escape(e.getKey());
+            Object v = e.getValue();
+
+            if (!source.containsKey(e.getKey())) {
+                result.add(op("add", p, v));
+                continue;
+            }
+
+            Object current = source.get(e.getKey());
+            if (current instanceof Map && v instanceof Map) {
+                diff((Map<String, Object>) current, (Map<String, Object>) v, p, result);
+            } else if (!isEqual(current, v)) {
+                result.add(op("replace", p, v));
+            }
+        }
+    }
+
+    private static boolean isEqual(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            // e.g. Integer and Long of the same value
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+        }
+
+        if (a instanceof List && b instanceof List) {
+            List<?> l1 = (List<?>) a;
+            List<?> l2 = (List<?>) b;
+            if (l1.size() != l2.size()) {
+                return false;
+            }
+            for (int i = 0; i < l1.size(); i++) {
+                if (!isEqual(l1.get(i), l2.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (a instanceof Map && b instanceof Map) {
+            Map<?, ?> m1 = (Map<?, ?>) a;
+            Map<?, ?> m2 = (Map<?, ?>) b;
+            if (!m1.keySet().equals(m2.keySet())) {
+                return false;
+            }
+            for (Map.Entry<?, ?> e : m1.entrySet()) {
+                if (!isEqual(e.getValue(), m2.get(e.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return Objects.equals(a, b);
+    }
+
+    private static Map<String, Object> op(String op, String path, Object value) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("op", op);
+        result.put("path", path);
+        result.put("value", value);
+        return result;
+    }
+
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+
+    private JsonPatch() {
+    }
+}
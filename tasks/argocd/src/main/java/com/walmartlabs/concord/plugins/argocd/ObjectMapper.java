@@ -20,7 +20,10 @@ package com.walmartlabs.concord.plugins.argocd;
  * =====
  */
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -29,6 +32,7 @@ import com.walmartlabs.concord.plugins.argocd.model.Application;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 public class ObjectMapper {
@@ -62,6 +66,22 @@ public class ObjectMapper {
         return delegate.writeValueAsString(value);
     }
 
+    public JsonParser createParser(InputStream in) throws IOException {
+        return delegate.getFactory().createParser(in);
+    }
+
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return delegate.getFactory().createGenerator(out);
+    }
+
+    public Map<String, Object> readMap(JsonParser p) throws IOException {
+        return delegate.readValue(p, MAP_TYPE);
+    }
+
+    public <T> T treeToValue(TreeNode n, Class<T> clazz) throws IOException {
+        return delegate.treeToValue(n, clazz);
+    }
+
     public Map<String, Object> readMap(InputStream in) throws IOException {
         return delegate.readValue(in, MAP_TYPE);
     }
@@ -0,0 +1,78 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Selects the application's resources by group, kind, namespace and name.
+ * Unset fields match any value.
+ */
+@Value.Immutable
+@Value.Style(jdkOnly = true)
+public interface ResourceSelector {
+
+    @Nullable
+    String group();
+
+    @Nullable
+    String kind();
+
+    @Nullable
+    String namespace();
+
+    @Nullable
+    String name();
+
+    @Value.Check
+    default void check() {
+        if (group() == null && kind() == null && namespace() == null && name() == null) {
+            throw new IllegalArgumentException("Invalid resource selector: at least one of 'group', 'kind', 'namespace' or 'name' is required");
+        }
+    }
+
+    /**
+     * @param resource an element of the application's {@code status.resources}
+     */
+    default boolean matches(Map<?, ?> resource) {
+        return matches((String) resource.get("group"), (String) resource.get("kind"),
+                (String) resource.get("namespace"), (String) resource.get("name"));
+    }
+
+    default boolean matches(String group, String kind, String namespace, String name) {
+        // the core API group is empty
+        return matches(group(), group != null ? group : "") &&
+                matches(kind(), kind) &&
+                matches(namespace(), namespace) &&
+                matches(name(), name);
+    }
+
+    static boolean matches(String expected, String actual) {
+        return expected == null || expected.equals(actual);
+    }
+
+    static ImmutableResourceSelector.Builder builder() {
+        return ImmutableResourceSelector.builder();
+    }
+}
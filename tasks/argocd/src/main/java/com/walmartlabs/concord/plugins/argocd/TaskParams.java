@@ -24,6 +24,7 @@ import org.immutables.value.Value;
 
 import javax.annotation.Nullable;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -182,21 +183,48 @@ public interface TaskParams {
         }
     }
 
-    interface PatchParams extends TaskParams {
+    /**
+     * How concurrent modifications of the same application are handled.
+     */
+    interface ConcurrencyOptions {
+
+        int DEFAULT_MAX_RETRIES = 5;
+
+        /**
+         * If {@code true}, the modifications are applied only if the application's {@code resourceVersion}
+         * didn't change in between and are retried otherwise. The project lock is held only
+         * while the sync is requested, not while waiting for it.
+         * If {@code false}, the project lock is held for the whole duration of the action.
+         */
+        @Value.Default
+        default boolean optimisticLocking() {
+            return false;
+        }
+
+        /**
+         * The maximum number of retries on conflicting modifications, e.g. with the controller's status updates.
+         */
+        @Value.Default
+        default int maxRetries() {
+            return DEFAULT_MAX_RETRIES;
+        }
+    }
+
+    interface PatchParams extends TaskParams, ConcurrencyOptions {
 
         String app();
 
         List<Map<String, Object>> patches();
     }
 
-    interface UpdateSpecParams extends TaskParams {
+    interface UpdateSpecParams extends TaskParams, ConcurrencyOptions {
 
         String app();
 
         Map<String, Object> spec();
     }
 
-    interface SetAppParams extends TaskParams {
+    interface SetAppParams extends TaskParams, ConcurrencyOptions {
 
         String app();
 
@@ -210,25 +238,15 @@ public interface TaskParams {
         }
     }
 
-    interface SyncParams extends TaskParams {
-
-        interface Resource {
-
-            String group();
-
-            String kind();
-
-            String name();
-
-            String namespace();
-        }
-
-        String app();
+    /**
+     * Options shared by {@link SyncParams} and {@link SyncManyParams}.
+     */
+    interface SyncOptions extends ConcurrencyOptions {
 
         @Nullable
         String revision();
 
-        List<Resource> resources();
+        List<SyncParams.Resource> resources();
 
         @Value.Default
         default boolean dryRun() {
@@ -255,10 +273,100 @@ public interface TaskParams {
             return false;
         }
 
+        /**
+         * Wait only for the selected resources instead of the whole application.
+         */
+        @Value.Default
+        default List<ResourceSelector> waitResources() {
+            return Collections.emptyList();
+        }
+
         @Nullable
         Duration syncTimeout();
     }
 
+    interface SyncParams extends TaskParams, SyncOptions {
+
+        interface Resource {
+
+            String group();
+
+            String kind();
+
+            String name();
+
+            String namespace();
+        }
+
+        String app();
+    }
+
+    interface SyncManyParams extends TaskParams, SyncOptions {
+
+        int DEFAULT_PARALLELISM = 4;
+
+        List<String> apps();
+
+        /**
+         * Narrows down the watch stream to the specified project.
+         * Either {@code project} or {@link #selector()} is required.
+         */
+        @Nullable
+        String project();
+
+        /**
+         * Narrows down the watch stream to the applications matching the label selector.
+         */
+        @Nullable
+        String selector();
+
+        /**
+         * The maximum number of concurrent sync requests.
+         */
+        @Value.Default
+        default int parallelism() {
+            return DEFAULT_PARALLELISM;
+        }
+    }
+
+    interface ListParams extends TaskParams {
+
+        int DEFAULT_MAX_ITEMS = 100;
+
+        List<String> DEFAULT_FIELDS = Collections.unmodifiableList(Arrays.asList(
+                "metadata.name",
+                "metadata.namespace",
+                "spec.project",
+                "status.sync.status",
+                "status.sync.revision",
+                "status.health.status"));
+
+        @Nullable
+        String project();
+
+        /**
+         * Label selector.
+         */
+        @Nullable
+        String selector();
+
+        /**
+         * The application fields to return, e.g. {@code status.sync.status}.
+         */
+        @Value.Default
+        default List<String> fields() {
+            return DEFAULT_FIELDS;
+        }
+
+        /**
+         * Larger lists are saved into a file instead of being returned as a variable.
+         */
+        @Value.Default
+        default int maxItems() {
+            return DEFAULT_MAX_ITEMS;
+        }
+    }
+
     interface DeleteAppParams extends TaskParams {
 
         String app();
@@ -275,7 +383,9 @@ public interface TaskParams {
     enum Action {
         DELETE,
         SYNC,
+        SYNCMANY,
         GET,
+        LIST,
         PATCH,
         UPDATESPEC,
         SETPARAMS,
@@ -41,9 +41,15 @@ public class TaskParamsImpl implements TaskParams {
             case GET: {
                 return new GetParamsImpl(variables);
             }
+            case LIST: {
+                return new ListParamsImpl(variables);
+            }
             case SYNC: {
                 return new SyncParamsImpl(variables);
             }
+            case SYNCMANY: {
+                return new SyncManyParamsImpl(variables);
+            }
             case DELETE: {
                 return new DeleteParamsImpl(variables);
             }
@@ -463,7 +469,31 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
-    private static class PatchParamsImpl extends TaskParamsImpl implements PatchParams {
+    private abstract static class ConcurrencyOptionsImpl extends TaskParamsImpl implements ConcurrencyOptions {
+
+        private static final String OPTIMISTIC_LOCKING_KEY = "optimisticLocking";
+        private static final String MAX_RETRIES_KEY = "maxRetries";
+
+        protected ConcurrencyOptionsImpl(Variables variables) {
+            super(variables);
+        }
+
+        @Override
+        public boolean optimisticLocking() {
+            return variables.getBoolean(OPTIMISTIC_LOCKING_KEY, ConcurrencyOptions.super.optimisticLocking());
+        }
+
+        @Override
+        public int maxRetries() {
+            int maxRetries = variables.getInt(MAX_RETRIES_KEY, ConcurrencyOptions.super.maxRetries());
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("Invalid '" + MAX_RETRIES_KEY + "' value: " + maxRetries + ". Expected a positive number or zero");
+            }
+            return maxRetries;
+        }
+    }
+
+    private static class PatchParamsImpl extends ConcurrencyOptionsImpl implements PatchParams {
 
         private static final String APP_KEY = "app";
         private static final String PATCHES_KEY = "patches";
@@ -495,7 +525,7 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
-    private static final class UpdateSpecParamsImpl extends TaskParamsImpl implements UpdateSpecParams {
+    private static final class UpdateSpecParamsImpl extends ConcurrencyOptionsImpl implements UpdateSpecParams {
 
         private static final String APP_KEY = "app";
         private static final String SPEC_KEY = "spec";
@@ -515,7 +545,7 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
-    private static final class SetAppParamsImpl extends TaskParamsImpl implements SetAppParams {
+    private static final class SetAppParamsImpl extends ConcurrencyOptionsImpl implements SetAppParams {
 
         private static final String APP_KEY = "app";
         private static final String HELM_KEY = "helm";
@@ -561,6 +591,42 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
+    private static class ListParamsImpl extends TaskParamsImpl implements ListParams {
+
+        private static final String PROJECT_KEY = "project";
+        private static final String SELECTOR_KEY = "selector";
+        private static final String FIELDS_KEY = "fields";
+        private static final String MAX_ITEMS_KEY = "maxItems";
+
+        protected ListParamsImpl(Variables variables) {
+            super(variables);
+        }
+
+        @Override
+        public String project() {
+            return variables.getString(PROJECT_KEY);
+        }
+
+        @Override
+        public String selector() {
+            return variables.getString(SELECTOR_KEY);
+        }
+
+        @Override
+        public List<String> fields() {
+            return variables.getList(FIELDS_KEY, ListParams.super.fields());
+        }
+
+        @Override
+        public int maxItems() {
+            int maxItems = variables.getInt(MAX_ITEMS_KEY, ListParams.super.maxItems());
+            if (maxItems < 0) {
+                throw new IllegalArgumentException("Invalid '" + MAX_ITEMS_KEY + "' value: " + maxItems + ". Expected a positive number or zero");
+            }
+            return maxItems;
+        }
+    }
+
     private static class DeleteParamsImpl extends TaskParamsImpl implements DeleteAppParams {
 
         private static final String APP_KEY = "app";
@@ -587,9 +653,9 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
-    private static class SyncParamsImpl extends TaskParamsImpl implements SyncParams {
+    private abstract static class SyncOptionsImpl extends ConcurrencyOptionsImpl implements SyncOptions {
 
-        private static class ResourceImpl implements SyncParams.Resource {
+        protected static class ResourceImpl implements SyncParams.Resource {
 
             private static final String GROUP_KEY = "group";
             private static final String KIND_KEY = "kind";
@@ -598,7 +664,7 @@ public class TaskParamsImpl implements TaskParams {
 
             private final Variables variables;
 
-            private ResourceImpl(Variables variables) {
+            protected ResourceImpl(Variables variables) {
                 this.variables = variables;
             }
 
@@ -627,24 +693,19 @@ public class TaskParamsImpl implements TaskParams {
             }
         }
 
-        private static final String APP_KEY = "app";
         private static final String REVISION_KEY = "revision";
         private static final String RETRY_STRATEGY_KEY = "retryStrategy";
         private static final String STRATEGY_KEY = "strategy";
         private static final String PRUNE_KEY = "prune";
         private static final String DRY_RUN_KEY = "dryRun";
         private static final String SYNC_TIMEOUT_KEY = "syncTimeout";
-        private static final String RESOURCES_KEY = "resources";
+        private static final String WAIT_RESOURCES_KEY = "waitResources";
+        protected static final String RESOURCES_KEY = "resources";
 
-        protected SyncParamsImpl(Variables variables) {
+        protected SyncOptionsImpl(Variables variables) {
             super(variables);
         }
 
-        @Override
-        public String app() {
-            return variables.assertString(APP_KEY);
-        }
-
         @Override
         public String revision() {
             return variables.getString(REVISION_KEY);
@@ -652,22 +713,22 @@ public class TaskParamsImpl implements TaskParams {
 
         @Override
         public boolean dryRun() {
-            return variables.getBoolean(DRY_RUN_KEY, SyncParams.super.dryRun());
+            return variables.getBoolean(DRY_RUN_KEY, SyncOptions.super.dryRun());
         }
 
         @Override
         public boolean prune() {
-            return variables.getBoolean(PRUNE_KEY, SyncParams.super.prune());
+            return variables.getBoolean(PRUNE_KEY, SyncOptions.super.prune());
         }
 
         @Override
         public Map<String, Object> retryStrategy() {
-            return variables.getMap(RETRY_STRATEGY_KEY, SyncParams.super.retryStrategy());
+            return variables.getMap(RETRY_STRATEGY_KEY, SyncOptions.super.retryStrategy());
         }
 
         @Override
         public Map<String, Object> strategy() {
-            return variables.getMap(STRATEGY_KEY, SyncParams.super.strategy());
+            return variables.getMap(STRATEGY_KEY, SyncOptions.super.strategy());
         }
 
         @Nullable
@@ -681,6 +742,34 @@ public class TaskParamsImpl implements TaskParams {
             return Duration.parse(value);
         }
 
+        @Override
+        public List<ResourceSelector> waitResources() {
+            List<Map<String, Object>> params = variables.getList(WAIT_RESOURCES_KEY, Collections.emptyList());
+            return params.stream()
+                    .map(MapBackedVariables::new)
+                    .map(v -> ResourceSelector.builder()
+                            .group(v.getString("group"))
+                            .kind(v.getString("kind"))
+                            .namespace(v.getString("namespace"))
+                            .name(v.getString("name"))
+                            .build())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static class SyncParamsImpl extends SyncOptionsImpl implements SyncParams {
+
+        private static final String APP_KEY = "app";
+
+        protected SyncParamsImpl(Variables variables) {
+            super(variables);
+        }
+
+        @Override
+        public String app() {
+            return variables.assertString(APP_KEY);
+        }
+
         @Override
         public List<Resource> resources() {
             List<Map<String, Object>> params = variables.assertList(RESOURCES_KEY);
@@ -691,6 +780,60 @@ public class TaskParamsImpl implements TaskParams {
         }
     }
 
+    private static class SyncManyParamsImpl extends SyncOptionsImpl implements SyncManyParams {
+
+        private static final String APPS_KEY = "apps";
+        private static final String PROJECT_KEY = "project";
+        private static final String SELECTOR_KEY = "selector";
+        private static final String PARALLELISM_KEY = "parallelism";
+
+        protected SyncManyParamsImpl(Variables variables) {
+            super(variables);
+        }
+
+        @Override
+        public List<String> apps() {
+            List<String> apps = variables.assertList(APPS_KEY);
+            if (apps.isEmpty()) {
+                throw new IllegalArgumentException("'" + APPS_KEY + "' must not be empty");
+            }
+            return apps;
+        }
+
+        @Override
+        public String project() {
+            String project = variables.getString(PROJECT_KEY);
+            if (project == null && selector() == null) {
+                // an unfiltered watch stream returns all applications of the server
+                throw new IllegalArgumentException("'" + PROJECT_KEY + "' or '" + SELECTOR_KEY + "' is required");
+            }
+            return project;
+        }
+
+        @Override
+        public String selector() {
+            return variables.getString(SELECTOR_KEY);
+        }
+
+        @Override
+        public int parallelism() {
+            int parallelism = variables.getInt(PARALLELISM_KEY, SyncManyParams.super.parallelism());
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("Invalid '" + PARALLELISM_KEY + "' value: " + parallelism + ". Expected a positive number");
+            }
+            return parallelism;
+        }
+
+        @Override
+        public List<SyncParams.Resource> resources() {
+            List<Map<String, Object>> params = variables.getList(RESOURCES_KEY, Collections.emptyList());
+            return params.stream()
+                    .map(MapBackedVariables::new)
+                    .map(ResourceImpl::new)
+                    .collect(Collectors.toList());
+        }
+    }
+
     private static Action action(Variables variables) {
         String action = variables.getString(ACTION_KEY, Action.SYNC.name());
         try {
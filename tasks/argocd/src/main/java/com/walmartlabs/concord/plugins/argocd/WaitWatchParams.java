@@ -22,6 +22,8 @@ package com.walmartlabs.concord.plugins.argocd;
 
 import org.immutables.value.Value;
 
+import java.util.List;
+
 @Value.Immutable
 @Value.Style(jdkOnly = true)
 public interface WaitWatchParams {
@@ -46,6 +48,11 @@ public interface WaitWatchParams {
         return false;
     }
 
+    /**
+     * Wait only for the selected resources instead of the application as a whole.
+     */
+    List<ResourceSelector> resources();
+
     static ImmutableWaitWatchParams.Builder builder() {
         return ImmutableWaitWatchParams.builder();
     }
@@ -20,32 +20,41 @@ package com.walmartlabs.concord.plugins.argocd;
  * =====
  */
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import okhttp3.Call;
 import okhttp3.ResponseBody;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.util.function.Function;
 
+/**
+ * Newline-delimited stream of JSON events. The events are parsed directly from the stream
+ * (without reading whole lines first).
+ */
 public class Watch<T> implements AutoCloseable {
 
     private final Call call;
     private final ResponseBody response;
-    private final Function<String, T> converter;
+    private final EventReader<T> reader;
+
+    private JsonParser parser;
+    private JsonToken next;
 
-    public Watch(Call call, ResponseBody response, Function<String, T> converter) {
+    public Watch(Call call, ResponseBody response, EventReader<T> reader) {
         this.call = call;
         this.response = response;
-        this.converter = converter;
+        this.reader = reader;
     }
 
     public T next() {
+        if (!hasNext()) {
+            throw new RuntimeException("Null response from the server");
+        }
+
         try {
-            String line = response.source().readUtf8Line();
-            if (line == null) {
-                throw new RuntimeException("Null response from the server");
-            }
-            return converter.apply(line);
+            next = null;
+            return reader.read(parser);
         } catch (IOException e) {
             throw new RuntimeException("IO Exception during next event", e);
         }
@@ -53,7 +62,13 @@ public class Watch<T> implements AutoCloseable {
 
     public boolean hasNext() {
         try {
-            return !response.source().exhausted();
+            if (next == null) {
+                if (parser == null) {
+                    parser = reader.createParser(response);
+                }
+                next = parser.nextToken();
+            }
+            return next != null;
         } catch (InterruptedIOException e) {
             if ("timeout".equals(e.getMessage())) {
                 throw new RuntimeException("Timeout waiting");
@@ -69,4 +84,14 @@ public class Watch<T> implements AutoCloseable {
         call.cancel();
         response.close();
     }
+
+    public interface EventReader<T> {
+
+        JsonParser createParser(ResponseBody response) throws IOException;
+
+        /**
+         * Reads the event at the parser's current token.
+         */
+        T read(JsonParser p) throws IOException;
+    }
 }
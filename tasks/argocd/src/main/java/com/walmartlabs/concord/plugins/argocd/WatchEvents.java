@@ -0,0 +1,123 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reads watch events token by token and skips the subtrees which are not needed
+ * to check the application's state, e.g. the list of the application's resources.
+ * Such events can be megabytes long, but only a few status fields are used.
+ * <p>
+ * If resource selectors are specified, only the matching resources are kept.
+ */
+public final class WatchEvents {
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    private static final String RESOURCES_PATH = "/result/application/status/resources";
+
+    private static final Set<String> SKIPPED_PATHS = new HashSet<>(Arrays.asList(
+            "/result/application/spec",
+            "/result/application/status/history"));
+
+    private static final String MANAGED_FIELDS = "managedFields";
+
+    /**
+     * Reads the current value of the parser.
+     */
+    public static JsonNode read(JsonParser p) throws IOException {
+        return read(p, Collections.emptyList());
+    }
+
+    /**
+     * Reads the current value of the parser, keeping the application's resources
+     * which match any of the selectors.
+     */
+    public static JsonNode read(JsonParser p, List<ResourceSelector> resources) throws IOException {
+        return read(p, "", resources);
+    }
+
+    private static JsonNode read(JsonParser p, String path, List<ResourceSelector> resources) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            ObjectNode result = nodeFactory.objectNode();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                String fieldPath = path + "/" + name;
+
+                p.nextToken();
+                if (MANAGED_FIELDS.equals(name) || SKIPPED_PATHS.contains(fieldPath)) {
+                    p.skipChildren();
+                    continue;
+                }
+
+                if (RESOURCES_PATH.equals(fieldPath)) {
+                    if (resources.isEmpty() || p.getCurrentToken() != JsonToken.START_ARRAY) {
+                        p.skipChildren();
+                    } else {
+                        result.set(name, readResources(p, fieldPath, resources));
+                    }
+                    continue;
+                }
+
+                result.set(name, read(p, fieldPath, resources));
+            }
+            return result;
+        } else if (t == JsonToken.START_ARRAY) {
+            ArrayNode result = nodeFactory.arrayNode();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                result.add(read(p, path + "/*", resources));
+            }
+            return result;
+        }
+
+        // scalars
+        return p.readValueAsTree();
+    }
+
+    private static ArrayNode readResources(JsonParser p, String path, List<ResourceSelector> selectors) throws IOException {
+        ArrayNode result = nodeFactory.arrayNode();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            JsonNode r = read(p, path + "/*", selectors);
+            if (selectors.stream().anyMatch(s -> s.matches(text(r, "group"), text(r, "kind"), text(r, "namespace"), text(r, "name")))) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    private static String text(JsonNode n, String field) {
+        JsonNode v = n.get(field);
+        return v != null && !v.isNull() ? v.asText() : null;
+    }
+
+    private WatchEvents() {
+    }
+}
@@ -196,6 +196,11 @@ public interface Application {
     @Nullable
     Operation operation();
 
+    @JsonIgnore
+    default String name() {
+        return (String) metadata().get("name");
+    }
+
     @JsonIgnore
     default String resourceVersion() {
         return (String) metadata().get("resourceVersion");
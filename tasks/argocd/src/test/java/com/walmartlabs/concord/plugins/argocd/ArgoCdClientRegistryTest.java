@@ -0,0 +1,64 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.runtime.v2.sdk.MapBackedVariables;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArgoCdClientRegistryTest {
+
+    @Test
+    public void testSharedClients() {
+        ArgoCdClientRegistry registry = new ArgoCdClientRegistry(2);
+
+        OkHttpClient a = registry.get(params("https://argocd-a", 30));
+        assertSame(a, registry.get(params("https://argocd-a", 30)));
+
+        OkHttpClient b = registry.get(params("https://argocd-a", 60));
+        assertNotSame(a, b);
+        assertEquals(60_000, b.readTimeoutMillis());
+
+        // different settings, same connections
+        assertSame(a.connectionPool(), b.connectionPool());
+        assertSame(a.dispatcher(), b.dispatcher());
+
+        // the least recently used client is evicted
+        registry.get(params("https://argocd-b", 30));
+        assertSame(b, registry.get(params("https://argocd-a", 60)));
+        assertNotSame(a, registry.get(params("https://argocd-a", 30)));
+    }
+
+    private static TaskParams params(String baseUrl, int readTimeout) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.GET.name());
+        vars.put("baseUrl", baseUrl);
+        vars.put("readTimeout", readTimeout);
+        vars.put("auth", Collections.singletonMap("token", "iddqd"));
+        return TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+    }
+}
@@ -0,0 +1,127 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.runtime.v2.sdk.MapBackedVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArgoCdListTest {
+
+    private HttpServer server;
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/applications", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            queries.add(query != null ? URLDecoder.decode(query, "UTF-8") : "");
+
+            String body = "{\"metadata\":{\"resourceVersion\":\"42\"},\"items\":[" +
+                    app("app-1") + "," + app("app-2") + "," + app("app-3") + "]}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testListApps() throws Exception {
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        List<Map<String, Object>> apps = new ArrayList<>();
+        client.listApps("Bearer iddqd", "my-project", "team=a", Arrays.asList("metadata.name", "items.status.sync.status"), apps::add);
+
+        assertEquals(3, apps.size());
+        assertEquals("app-1", MapUtils.get(apps.get(0), "metadata.name", null));
+        assertEquals("projects=my-project&selector=team=a&fields=items.metadata.name,items.status.sync.status", queries.get(0));
+    }
+
+    @Test
+    public void testLargeList(@TempDir Path tmpDir) throws Exception {
+        ArgoCdClient client = new ArgoCdClient(params());
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        AppListWriter w = new AppListWriter(objectMapper, tmpDir, 2);
+        try (AppListWriter ignored = w) {
+            client.listApps("Bearer iddqd", null, null, Collections.emptyList(), w::add);
+        }
+
+        assertEquals(3, w.count());
+        assertNull(w.items());
+        assertNotNull(w.file());
+
+        List<Map<String, Object>> apps = new com.fasterxml.jackson.databind.ObjectMapper()
+                .readValue(Files.readAllBytes(w.file()), new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertEquals(3, apps.size());
+        assertEquals("app-3", MapUtils.get(apps.get(2), "metadata.name", null));
+    }
+
+    @Test
+    public void testSmallList(@TempDir Path tmpDir) throws Exception {
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        AppListWriter w = new AppListWriter(new ObjectMapper(), tmpDir, 3);
+        try (AppListWriter ignored = w) {
+            client.listApps("Bearer iddqd", null, null, Collections.emptyList(), w::add);
+        }
+
+        assertEquals(3, w.items().size());
+        assertNull(w.file());
+    }
+
+    private TaskParams params() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.LIST.name());
+        vars.put("baseUrl", "http://localhost:" + server.getAddress().getPort());
+        vars.put("auth", Collections.singletonMap("token", "iddqd"));
+        return TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+    }
+
+    private static String app(String name) {
+        return "{\"metadata\":{\"name\":\"" + name + "\"},\"status\":{\"sync\":{\"status\":\"Synced\"}}}";
+    }
+}
@@ -0,0 +1,160 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.plugins.argocd.model.Application;
+import com.walmartlabs.concord.runtime.v2.sdk.MapBackedVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArgoCdPatchTest {
+
+    private HttpServer server;
+    private final List<String> patches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger conflicts = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/applications/", exchange -> {
+            String body;
+            int code = 200;
+            if ("PATCH".equals(exchange.getRequestMethod())) {
+                patches.add(read(exchange.getRequestBody()));
+                if (conflicts.getAndDecrement() > 0) {
+                    // what ArgoCD returns for a failed "test" operation
+                    code = 400;
+                    body = "{\"error\":\"testing value /metadata/resourceVersion failed: test failed\",\"code\":3}";
+                } else {
+                    body = app("v2", "8");
+                }
+            } else {
+                body = app("v1", "7");
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testPatchAppSpec() throws Exception {
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        Application app = client.getApp("Bearer iddqd", "app-1", false);
+        Map<String, Object> spec = MapUtils.set(app.spec(), "source.targetRevision", "v2");
+
+        Application result = client.patchAppSpec("Bearer iddqd", app, JsonPatch.diff(app.spec(), spec, "/spec"));
+        assertEquals("v2", MapUtils.get(result.spec(), "source.targetRevision", null));
+
+        // only the changed path with the resourceVersion precondition
+        assertEquals(1, patches.size());
+        com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
+        Map<?, ?> body = om.readValue(patches.get(0), Map.class);
+        assertEquals("json", body.get("patchType"));
+        assertEquals(Arrays.asList(
+                        JsonPatch.test("/metadata/resourceVersion", "7"),
+                        op("replace", "/spec/source/targetRevision", "v2")),
+                om.readValue((String) body.get("patch"), List.class));
+    }
+
+    @Test
+    public void testNoChanges() throws Exception {
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        Application app = client.getApp("Bearer iddqd", "app-1", false);
+        Map<String, Object> spec = MapUtils.set(app.spec(), "source.targetRevision", "v1");
+        Application result = client.patchAppSpec("Bearer iddqd", app, JsonPatch.diff(app.spec(), spec, "/spec"));
+
+        assertSame(app, result);
+        assertTrue(patches.isEmpty());
+    }
+
+    @Test
+    public void testConflict() throws Exception {
+        conflicts.set(1);
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        Application app = client.getApp("Bearer iddqd", "app-1", false);
+        List<Map<String, Object>> patch = Collections.singletonList(op("replace", "/spec/source/targetRevision", "v2"));
+
+        assertThrows(ConflictException.class, () -> client.patchApp("Bearer iddqd", "app-1", app.resourceVersion(), patch));
+
+        // the next attempt succeeds
+        Application result = client.patchApp("Bearer iddqd", "app-1", app.resourceVersion(), patch);
+        assertEquals("8", result.resourceVersion());
+        assertEquals(2, patches.size());
+    }
+
+    private TaskParams params() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.UPDATESPEC.name());
+        vars.put("baseUrl", "http://localhost:" + server.getAddress().getPort());
+        vars.put("auth", Collections.singletonMap("token", "iddqd"));
+        return TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+    }
+
+    private static String app(String revision, String resourceVersion) {
+        return "{\"metadata\":{\"name\":\"app-1\",\"resourceVersion\":\"" + resourceVersion + "\"}," +
+                "\"spec\":{\"project\":\"default\",\"source\":{\"repoURL\":\"https://example.com/repo.git\",\"targetRevision\":\"" + revision + "\"}}," +
+                "\"status\":{\"health\":{\"status\":\"Healthy\"},\"sync\":{\"status\":\"Synced\"}}}";
+    }
+
+    private static Map<String, Object> op(String op, String path, Object value) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("op", op);
+        result.put("path", path);
+        result.put("value", value);
+        return result;
+    }
+
+    private static String read(InputStream in) throws java.io.IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = in.read(buf)) > 0) {
+            out.write(buf, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArgoCdTokenCacheTest {
+
+    @Test
+    public void testExpiration() {
+        ArgoCdTokenCache cache = new ArgoCdTokenCache();
+        String key = ArgoCdTokenCache.key("https://argocd", basic("duke", "nukem"));
+
+        long now = System.currentTimeMillis();
+
+        cache.put(key, jwt(now + TimeUnit.HOURS.toMillis(1)));
+        assertNotNull(cache.get(key));
+
+        // about to expire
+        cache.put(key, jwt(now + TimeUnit.SECONDS.toMillis(30)));
+        assertNull(cache.get(key));
+
+        cache.put(key, "not-a-jwt");
+        assertEquals("not-a-jwt", cache.get(key));
+
+        cache.invalidate(key);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testKey() {
+        String key = ArgoCdTokenCache.key("https://argocd", basic("duke", "nukem"));
+        assertEquals(key, ArgoCdTokenCache.key("https://argocd", basic("duke", "nukem")));
+        assertNotEquals(key, ArgoCdTokenCache.key("https://argocd", basic("duke", "other")));
+        assertNotEquals(key, ArgoCdTokenCache.key("https://argocd-2", basic("duke", "nukem")));
+
+        assertNull(ArgoCdTokenCache.key("https://argocd", ImmutableTestTokenAuth.builder().token("iddqd").build()));
+    }
+
+    private static TaskParams.BasicAuth basic(String username, String password) {
+        return ImmutableTestBasicAuth.builder()
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    private static String jwt(long expiresAt) {
+        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        String header = enc.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = enc.encodeToString(("{\"exp\":" + TimeUnit.MILLISECONDS.toSeconds(expiresAt) + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".sig";
+    }
+}
@@ -0,0 +1,254 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.plugins.argocd.model.Application;
+import com.walmartlabs.concord.plugins.argocd.model.WatchAppResult;
+import com.walmartlabs.concord.runtime.v2.sdk.MapBackedVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArgoCdWatchTest {
+
+    private HttpServer server;
+    private final AtomicInteger streams = new AtomicInteger();
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger appRequests = new AtomicInteger();
+    private final AtomicInteger appFailures = new AtomicInteger();
+
+    /**
+     * Events of each consecutive stream, the last one is repeated.
+     */
+    private final List<String> streamEvents = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/stream/applications", exchange -> {
+            int n = streams.getAndIncrement();
+            queries.add(exchange.getRequestURI().getQuery());
+
+            String events = streamEvents.get(Math.min(n, streamEvents.size() - 1));
+            byte[] body = events.getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/api/v1/applications/", exchange -> {
+            appRequests.incrementAndGet();
+
+            String app = exchange.getRequestURI().getPath().substring("/api/v1/applications/".length());
+            byte[] body = application(app, "Synced", "3").getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (appFailures.getAndDecrement() > 0) {
+                    // a network error, the connection is closed in the middle of the response
+                    out.write(body, 0, body.length / 2);
+                    out.flush();
+                    throw new IOException("dropped");
+                }
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testWaitForSyncMany() throws Exception {
+        streamEvents.add(event("app-1", "OutOfSync", "1") +
+                event("other", "Synced", "1") +
+                event("app-2", "Synced", "2") +
+                event("app-1", "Synced", "2"));
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        Map<String, Application> ready = new LinkedHashMap<>();
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+                client.waitForSyncMany("Bearer iddqd", Arrays.asList("app-1", "app-2", "app-3"), "my-project", null,
+                        Duration.ofSeconds(3), WaitWatchParams.builder().build(), ready::put));
+
+        // app-3 never becomes ready, the stream is reopened until the timeout
+        assertTrue(e.getMessage().contains("Timeout"), e.getMessage());
+        assertTrue(streams.get() >= 2);
+
+        // in the order the apps became ready, each app is reported once
+        assertEquals(Arrays.asList("app-2", "app-1"), new ArrayList<>(ready.keySet()));
+        assertEquals("projects=my-project", queries.get(0));
+
+        // the full application is returned
+        assertEquals(1, ready.get("app-1").status().resources().size());
+    }
+
+    @Test
+    public void testWaitForSyncManyFetchError() throws Exception {
+        streamEvents.add(event("app-1", "Synced", "2"));
+        appFailures.set(1);
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        // the app stays pending until it is fetched
+        Map<String, Application> ready = new LinkedHashMap<>();
+        client.waitForSyncMany("Bearer iddqd", Collections.singletonList("app-1"), "my-project", null,
+                Duration.ofSeconds(10), WaitWatchParams.builder().build(), ready::put);
+
+        assertEquals(Collections.singleton("app-1"), ready.keySet());
+        assertTrue(appRequests.get() >= 2);
+        assertTrue(streams.get() >= 2);
+    }
+
+    @Test
+    public void testWaitForSyncResume() throws Exception {
+        // the first stream ends before the app is synchronized
+        streamEvents.add(event("app-1", "OutOfSync", "5"));
+        streamEvents.add(event("app-1", "Synced", "6"));
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        Application app = client.waitForSync("Bearer iddqd", "app-1", "4", Duration.ofSeconds(10), WaitWatchParams.builder().build());
+        assertEquals("app-1", app.name());
+
+        // resumed from the last seen version
+        assertEquals(2, streams.get());
+        assertEquals("name=app-1&resourceVersion=4", queries.get(0));
+        assertEquals("name=app-1&resourceVersion=5", queries.get(1));
+    }
+
+    @Test
+    public void testWaitForSyncTimeout() throws Exception {
+        streamEvents.add(event("app-1", "OutOfSync", "5"));
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        long t1 = System.currentTimeMillis();
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+                client.waitForSync("Bearer iddqd", "app-1", "4", Duration.ofSeconds(2), WaitWatchParams.builder().build()));
+        long t2 = System.currentTimeMillis();
+
+        // the reconnects share the same timeout
+        assertTrue(e.getMessage().contains("Timeout"), e.getMessage());
+        assertTrue(t2 - t1 < 5000);
+    }
+
+    @Test
+    public void testWaitForSyncResources() throws Exception {
+        // the app as a whole is still progressing, but the selected resource is ready
+        streamEvents.add("{\"result\":{\"type\":\"MODIFIED\",\"application\":{" +
+                "\"metadata\":{\"name\":\"app-1\",\"resourceVersion\":\"5\"}," +
+                "\"status\":{\"health\":{\"status\":\"Progressing\"},\"sync\":{\"status\":\"OutOfSync\"}," +
+                "\"resources\":[" +
+                "{\"group\":\"apps\",\"kind\":\"Deployment\",\"name\":\"api\",\"status\":\"Synced\",\"health\":{\"status\":\"Healthy\"}}," +
+                "{\"kind\":\"ConfigMap\",\"name\":\"api\",\"status\":\"Synced\"}," +
+                "{\"group\":\"apps\",\"kind\":\"Deployment\",\"name\":\"worker\",\"status\":\"OutOfSync\",\"health\":{\"status\":\"Progressing\"}}" +
+                "]}}}}\n");
+
+        ArgoCdClient client = new ArgoCdClient(params());
+
+        WaitWatchParams p = WaitWatchParams.builder()
+                .watchHealth(true)
+                .addResources(ResourceSelector.builder().name("api").build())
+                .build();
+
+        Application app = client.waitForSync("Bearer iddqd", "app-1", "4", Duration.ofSeconds(10), p);
+        assertEquals("app-1", app.name());
+        assertEquals(1, streams.get());
+
+        // the app as a whole is not ready
+        WaitWatchParams all = WaitWatchParams.builder()
+                .watchHealth(true)
+                .build();
+
+        assertThrows(RuntimeException.class, () -> client.waitForSync("Bearer iddqd", "app-1", "4", Duration.ofSeconds(2), all));
+    }
+
+    @Test
+    public void testSelectedResources() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (JsonParser p = objectMapper.createParser(new ByteArrayInputStream(event("app-1", "Synced", "1").getBytes(StandardCharsets.UTF_8)))) {
+            p.nextToken();
+            List<ResourceSelector> selectors = Collections.singletonList(ResourceSelector.builder().kind("Deployment").build());
+            WatchAppResult result = objectMapper.treeToValue(WatchEvents.read(p, selectors), WatchAppResult.class);
+
+            // only the matching resources are kept
+            Application app = result.application();
+            assertNotNull(app);
+            assertEquals(1, app.status().resources().size());
+            assertTrue(app.spec().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPartialEvents() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (JsonParser p = objectMapper.createParser(new ByteArrayInputStream(event("app-1", "Synced", "1").getBytes(StandardCharsets.UTF_8)))) {
+            p.nextToken();
+            WatchAppResult result = objectMapper.treeToValue(WatchEvents.read(p), WatchAppResult.class);
+
+            Application app = result.application();
+            assertNotNull(app);
+            assertEquals("app-1", app.name());
+            assertEquals("Synced", app.status().sync().status());
+            assertTrue(app.status().resources().isEmpty());
+            assertTrue(app.spec().isEmpty());
+            assertFalse(app.metadata().containsKey("managedFields"));
+        }
+    }
+
+    private TaskParams params() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.SYNCMANY.name());
+        vars.put("baseUrl", "http://localhost:" + server.getAddress().getPort());
+        vars.put("auth", Collections.singletonMap("token", "iddqd"));
+        return TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+    }
+
+    private static String event(String app, String syncStatus, String resourceVersion) {
+        return "{\"result\":{\"type\":\"MODIFIED\",\"application\":" + application(app, syncStatus, resourceVersion) + "}}\n";
+    }
+
+    private static String application(String app, String syncStatus, String resourceVersion) {
+        return "{\"metadata\":{\"name\":\"" + app + "\",\"resourceVersion\":\"" + resourceVersion + "\",\"managedFields\":[{\"manager\":\"argocd\"}]}," +
+                "\"spec\":{\"project\":\"my-project\"}," +
+                "\"status\":{\"health\":{\"status\":\"Healthy\"},\"sync\":{\"status\":\"" + syncStatus + "\"}," +
+                "\"resources\":[{\"kind\":\"Deployment\",\"name\":\"app\"}]}}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.walmartlabs.concord.plugins.argocd;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2022 Walmart Inc., Concord Authors
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.ConfigurationUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonPatchTest {
+
+    @Test
+    public void testDiff() {
+        Map<String, Object> source = new HashMap<>();
+        source.put("project", "default");
+        source.put("source", map("targetRevision", "v1", "path", "app", "helm", map("values", "a: 1")));
+        source.put("syncPolicy", map("automated", true));
+        source.put("replicas", 1);
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("source", map("targetRevision", "v2", "chart/name", "x"));
+        patch.put("replicas", 1L);
+
+        Map<String, Object> target = ConfigurationUtils.deepMerge(source, patch);
+        target.remove("syncPolicy");
+
+        List<Map<String, Object>> ops = JsonPatch.diff(source, target, "/spec");
+
+        Set<String> actual = new HashSet<>();
+        for (Map<String, Object> op : ops) {
+            actual.add(op.get("op") + " " + op.get("path"));
+        }
+
+        Set<String> expected = new HashSet<>(Arrays.asList(
+                "remove /spec/syncPolicy",
+                "replace /spec/source/targetRevision",
+                "add /spec/source/chart~1name"));
+        assertEquals(expected, actual);
+
+        // the source is not modified by the merge
+        assertEquals("v1", MapUtils.get(source, "source.targetRevision", null));
+    }
+
+    @Test
+    public void testNoChanges() {
+        Map<String, Object> source = map("source", map("helm", map("parameters", Collections.singletonList(map("name", "a", "value", "b")))));
+        Map<String, Object> target = ConfigurationUtils.deepMerge(source, map("source", map("helm", map("parameters", Collections.singletonList(map("name", "a", "value", "b"))))));
+
+        assertTrue(JsonPatch.diff(source, target, "/spec").isEmpty());
+    }
+
+    private static Map<String, Object> map(Object... kvs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < kvs.length; i += 2) {
+            result.put((String) kvs[i], kvs[i + 1]);
+        }
+        return result;
+    }
+}
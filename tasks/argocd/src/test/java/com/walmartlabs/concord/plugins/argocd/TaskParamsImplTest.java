@@ -89,4 +89,89 @@ public class TaskParamsImplTest {
         assertEquals("https://login.azure.com/cleint-1", ((TaskParams.AzureAuth)in.auth()).authority());
         assertTrue(((TaskParams.AzureAuth)in.auth()).scope().contains("user.read"));
     }
+
+    @Test
+    public void testSyncMany() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.SYNCMANY.name());
+        vars.put("apps", Arrays.asList("app-1", "app-2"));
+        vars.put("project", "my-project");
+        vars.put("prune", true);
+
+        TaskParams.SyncManyParams in = (TaskParams.SyncManyParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertEquals(Arrays.asList("app-1", "app-2"), in.apps());
+        assertEquals("my-project", in.project());
+        assertNull(in.selector());
+        assertTrue(in.prune());
+        assertEquals(TaskParams.SyncManyParams.DEFAULT_PARALLELISM, in.parallelism());
+        assertTrue(in.resources().isEmpty());
+        assertTrue(in.waitResources().isEmpty());
+
+        vars.remove("project");
+        vars.put("selector", "team=a");
+        TaskParams.SyncManyParams bySelector = (TaskParams.SyncManyParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertNull(bySelector.project());
+        assertEquals("team=a", bySelector.selector());
+
+        // the watch stream must be filtered
+        vars.remove("selector");
+        TaskParams.SyncManyParams invalid = (TaskParams.SyncManyParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertThrows(IllegalArgumentException.class, invalid::project);
+    }
+
+    @Test
+    public void testWaitResources() {
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("kind", "Deployment");
+        resource.put("name", "api");
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.SYNCMANY.name());
+        vars.put("apps", Collections.singletonList("app-1"));
+        vars.put("waitResources", Collections.singletonList(resource));
+
+        TaskParams.SyncManyParams in = (TaskParams.SyncManyParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        ResourceSelector s = in.waitResources().get(0);
+        assertEquals("Deployment", s.kind());
+        assertEquals("api", s.name());
+        assertNull(s.group());
+        assertTrue(s.matches("apps", "Deployment", "default", "api"));
+        assertFalse(s.matches("apps", "Deployment", "default", "worker"));
+
+        // at least one field is required
+        vars.put("waitResources", Collections.singletonList(Collections.emptyMap()));
+        TaskParams.SyncManyParams invalid = (TaskParams.SyncManyParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertThrows(IllegalArgumentException.class, invalid::waitResources);
+    }
+
+    @Test
+    public void testList() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.LIST.name());
+        vars.put("selector", "team=a");
+
+        TaskParams.ListParams in = (TaskParams.ListParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertNull(in.project());
+        assertEquals("team=a", in.selector());
+        assertEquals(TaskParams.ListParams.DEFAULT_FIELDS, in.fields());
+        assertEquals(TaskParams.ListParams.DEFAULT_MAX_ITEMS, in.maxItems());
+    }
+
+    @Test
+    public void testOptimisticLocking() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("action", TaskParams.Action.UPDATESPEC.name());
+        vars.put("app", "app-1");
+        vars.put("spec", Collections.emptyMap());
+
+        TaskParams.UpdateSpecParams in = (TaskParams.UpdateSpecParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertFalse(in.optimisticLocking());
+        assertEquals(TaskParams.ConcurrencyOptions.DEFAULT_MAX_RETRIES, in.maxRetries());
+
+        vars.put("optimisticLocking", true);
+        vars.put("maxRetries", 2);
+        in = (TaskParams.UpdateSpecParams) TaskParamsImpl.of(new MapBackedVariables(vars), Collections.emptyMap());
+        assertTrue(in.optimisticLocking());
+        assertEquals(2, in.maxRetries());
+    }
 }
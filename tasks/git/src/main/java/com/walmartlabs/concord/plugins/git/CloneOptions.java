@@ -0,0 +1,141 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * History, object filtering and sparse checkout options of a clone.
+ */
+public class CloneOptions {
+
+    private static final Pattern FILTER_PATTERN = Pattern.compile("blob:none|blob:limit=\\d+[kmg]?|tree:\\d+");
+    private static final Pattern GLOB_CHARS = Pattern.compile("[*?\\[\\]!\\\\]");
+
+    public static final CloneOptions FULL = new CloneOptions(0, null, null, null);
+
+    private final int depth;
+    private final String shallowSince;
+    private final String filter;
+    private final List<String> sparsePaths;
+
+    public CloneOptions(int depth, String shallowSince, String filter, List<String> sparsePaths) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Invalid 'depth' value: " + depth + ". Expected a positive number");
+        }
+
+        if (filter != null && !FILTER_PATTERN.matcher(filter).matches()) {
+            throw new IllegalArgumentException("Invalid 'filter' value: '" + filter + "'. Expected one of: blob:none, blob:limit=<n>, tree:<depth>");
+        }
+
+        this.depth = depth;
+        this.shallowSince = shallowSince;
+        this.filter = filter;
+        this.sparsePaths = normalizeSparsePaths(sparsePaths);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public String shallowSince() {
+        return shallowSince;
+    }
+
+    public String filter() {
+        return filter;
+    }
+
+    /**
+     * @return directories to check out in the cone mode, empty for a full checkout.
+     */
+    public List<String> sparsePaths() {
+        return sparsePaths;
+    }
+
+    public boolean isShallow() {
+        return depth > 0 || shallowSince != null;
+    }
+
+    public boolean isPartial() {
+        return filter != null;
+    }
+
+    public boolean isSparse() {
+        return !sparsePaths.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if the clone can't be done with JGit and requires the git CLI.
+     */
+    public boolean requiresCli() {
+        return isShallow() || isPartial() || isSparse();
+    }
+
+    List<String> toCliArgs() {
+        List<String> result = new ArrayList<>();
+        if (depth > 0) {
+            result.add("--depth=" + depth);
+        }
+        if (shallowSince != null) {
+            result.add("--shallow-since=" + shallowSince);
+        }
+        if (isShallow()) {
+            // keep all remote branches available, e.g. for the 'merge' action
+            result.add("--no-single-branch");
+        }
+        if (filter != null) {
+            result.add("--filter=" + filter);
+        }
+        if (isSparse()) {
+            // the working tree is populated after the sparse checkout patterns are set
+            result.add("--no-checkout");
+        }
+        return result;
+    }
+
+    private static List<String> normalizeSparsePaths(List<String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> result = new ArrayList<>(paths.size());
+        for (String p : paths) {
+            String s = p != null ? p.trim() : "";
+            while (s.startsWith("/")) {
+                s = s.substring(1);
+            }
+            while (s.endsWith("/")) {
+                s = s.substring(0, s.length() - 1);
+            }
+
+            if (s.isEmpty() || GLOB_CHARS.matcher(s).find()) {
+                throw new IllegalArgumentException("Invalid 'sparsePaths' value: '" + p + "'. Expected a directory path, patterns are not supported in the cone mode");
+            }
+
+            result.add(s);
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,262 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.secret.KeyPair;
+import com.walmartlabs.concord.common.secret.UsernamePassword;
+import com.walmartlabs.concord.sdk.Secret;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+
+/**
+ * Runs the git CLI for the operations JGit doesn't support (shallow and partial clones, sparse checkouts, etc).
+ */
+public class GitCli {
+
+    private static final Logger log = LoggerFactory.getLogger(GitCli.class);
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private final Secret secret;
+
+    public GitCli(Secret secret) {
+        this.secret = secret;
+    }
+
+    public void cloneRepo(String uri, String branchName, CloneOptions options, Path dst) {
+        List<String> args = new ArrayList<>();
+        args.add("clone");
+        args.addAll(options.toCliArgs());
+        if (branchName != null) {
+            args.add("--branch");
+            args.add(branchName);
+        }
+        args.add("--");
+        args.add(uri);
+        args.add(dst.toAbsolutePath().toString());
+
+        exec(null, args);
+
+        if (options.isSparse()) {
+            sparseCheckout(dst, branchName, options.sparsePaths());
+        }
+    }
+
+    /**
+     * Sets the cone mode sparse checkout patterns and populates the working tree.
+     */
+    public void sparseCheckout(Path repo, String branchName, List<String> paths) {
+        List<String> args = new ArrayList<>();
+        args.add("sparse-checkout");
+        args.add("set");
+        args.add("--cone");
+        args.add("--");
+        args.addAll(paths);
+        exec(repo, args);
+
+        if (branchName != null) {
+            exec(repo, "checkout", branchName);
+        } else {
+            exec(repo, "checkout");
+        }
+    }
+
+    /**
+     * Removes the files outside of the sparse checkout patterns, e.g. the files
+     * materialized by JGit which ignores the skip-worktree bits.
+     */
+    public void reapplySparseCheckout(Path repo) {
+        // JGit leaves stale stat data in the index, without a refresh git considers such files modified and keeps them
+        exec(repo, "update-index", "-q", "--refresh");
+        exec(repo, "sparse-checkout", "reapply");
+    }
+
+    public static boolean isSparse(Path repo) {
+        try (Git git = Git.open(repo.toFile())) {
+            Repository r = git.getRepository();
+            if (r.getConfig().getBoolean("core", "sparseCheckout", false)) {
+                return true;
+            }
+
+            // "git sparse-checkout" stores its settings in the per-worktree config
+            FileBasedConfig worktreeConfig = new FileBasedConfig(new File(r.getDirectory(), "config.worktree"), r.getFS());
+            worktreeConfig.load();
+            return worktreeConfig.getBoolean("core", "sparseCheckout", false);
+        } catch (IOException | ConfigInvalidException e) {
+            throw new RuntimeException("Can't read the configuration of " + repo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the repository is a shallow, partial or sparse clone and must be
+     * updated using the git CLI.
+     */
+    public static boolean requiresCli(Path repo) {
+        if (Files.exists(repo.resolve(".git").resolve("shallow"))) {
+            return true;
+        }
+
+        return isPartial(repo) || isSparse(repo);
+    }
+
+    /**
+     * @return {@code true} if the repository was cloned with a {@code --filter} and may lack objects.
+     */
+    public static boolean isPartial(Path repo) {
+        try (Git git = Git.open(repo.toFile())) {
+            StoredConfig config = git.getRepository().getConfig();
+            if (config.getString("extensions", null, "partialClone") != null) {
+                return true;
+            }
+
+            // newer git versions mark the promisor remote only
+            for (String remote : config.getSubsections("remote")) {
+                if (config.getBoolean("remote", remote, "promisor", false)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Can't read the configuration of " + repo + ": " + e.getMessage(), e);
+        }
+    }
+
+    public String exec(Path workDir, String... args) {
+        return exec(workDir, Arrays.asList(args));
+    }
+
+    public String exec(Path workDir, List<String> args) {
+        List<String> cmd = new ArrayList<>(args.size() + 1);
+        cmd.add("git");
+        cmd.addAll(args);
+
+        // the credentials can be passed in the repository URL too
+        Redactor redactor = Redactor.of(secret, Redactor.urlCredentials(String.join(" ", cmd)).toArray(new String[0]));
+
+        log.info("exec -> {}", redactor.redact(String.join(" ", cmd)));
+
+        List<Path> tmpFiles = new ArrayList<>();
+        try {
+            ProcessBuilder pb = new ProcessBuilder(cmd);
+            if (workDir != null) {
+                pb.directory(workDir.toFile());
+            }
+
+            Map<String, String> env = pb.environment();
+            env.put("GIT_TERMINAL_PROMPT", "0");
+            configureCredentials(env, tmpFiles);
+
+            Path stderr = Files.createTempFile("git", ".err");
+            tmpFiles.add(stderr);
+            pb.redirectError(stderr.toFile());
+
+            Process p = pb.start();
+            String out;
+            try (InputStream in = p.getInputStream()) {
+                out = new String(Utils.readFully(in), StandardCharsets.UTF_8);
+            }
+
+            int code = p.waitFor();
+            if (code != 0) {
+                String err = readRedacted(stderr, redactor).trim();
+                throw new RuntimeException(redactor.redact("'" + String.join(" ", cmd) + "'") + " finished with code " + code + ": " + err);
+            }
+
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException("Error while running git: " + redactor.redact(e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running git", e);
+        } finally {
+            for (Path f : tmpFiles) {
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException e) {
+                    log.warn("exec -> can't delete a temporary file {}: {}", f, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void configureCredentials(Map<String, String> env, List<Path> tmpFiles) throws IOException {
+        if (secret instanceof KeyPair) {
+            Path key = Files.createTempFile("git", ".key");
+            tmpFiles.add(key);
+            Files.setPosixFilePermissions(key, PosixFilePermissions.fromString("rw-------"));
+            Files.write(key, ((KeyPair) secret).getPrivateKey());
+
+            env.put("GIT_SSH_COMMAND", "ssh -i " + key.toAbsolutePath() +
+                    " -o IdentitiesOnly=yes -o StrictHostKeyChecking=no -o UserKnownHostsFile=/dev/null");
+        } else if (secret instanceof UsernamePassword) {
+            UsernamePassword up = (UsernamePassword) secret;
+            env.put("GIT_ASKPASS", createAskpass(up.getUsername(), new String(up.getPassword()), tmpFiles).toString());
+        } else if (secret instanceof TokenSecret) {
+            // same as JGitClient: the token is the username, the password is empty
+            env.put("GIT_ASKPASS", createAskpass(((TokenSecret) secret).getToken(), "", tmpFiles).toString());
+        }
+    }
+
+    static Path createAskpass(String username, String password, List<Path> tmpFiles) throws IOException {
+        Path askpass = Files.createTempFile("git-askpass", ".sh");
+        tmpFiles.add(askpass);
+        Files.setPosixFilePermissions(askpass, OWNER_ONLY);
+
+        String script = "#!/bin/sh\n" +
+                "case \"$1\" in\n" +
+                "Username*) printf '%s\\n' " + quote(username) + " ;;\n" +
+                "Password*) printf '%s\\n' " + quote(password) + " ;;\n" +
+                "esac\n";
+        Files.write(askpass, script.getBytes(StandardCharsets.UTF_8));
+
+        return askpass.toAbsolutePath();
+    }
+
+    private static String quote(String s) {
+        return "'" + s.replace("'", "'\\''") + "'";
+    }
+
+    private static String readRedacted(Path p, Redactor redactor) throws IOException {
+        StringWriter result = new StringWriter();
+        try (Reader in = Files.newBufferedReader(p, StandardCharsets.UTF_8);
+             Writer out = redactor.wrap(result)) {
+            char[] buf = new char[8192];
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                out.write(buf, 0, read);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -24,6 +24,8 @@ import com.walmartlabs.concord.repository.FetchRequest;
 import com.walmartlabs.concord.repository.GitClientConfiguration;
 import com.walmartlabs.concord.repository.ImmutableGitClientConfiguration;
 import com.walmartlabs.concord.sdk.Secret;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.StoredConfig;
 
 import java.nio.file.Path;
 import java.time.Duration;
@@ -31,13 +33,46 @@ import java.time.Duration;
 public class GitCliClient implements GitClient {
 
     private final boolean shallowClone;
+    private final GitMirrorCache mirrorCache;
+    private final CloneOptions cloneOptions;
 
     public GitCliClient(boolean shallowClone) {
+        this(shallowClone, null, CloneOptions.FULL);
+    }
+
+    public GitCliClient(boolean shallowClone, GitMirrorCache mirrorCache, CloneOptions cloneOptions) {
         this.shallowClone = shallowClone;
+        this.mirrorCache = mirrorCache;
+        this.cloneOptions = cloneOptions;
     }
 
     @Override
-    public void cloneRepo(String uri, String branchName, Secret secret, Path dst) {
+    public void cloneRepo(String uri, String branchName, Secret secret, Path dst) throws Exception {
+        if (mirrorCache == null) {
+            fetch(uri, branchName, secret, dst);
+            return;
+        }
+
+        mirrorCache.withMirror(uri, secret, mirrorDir -> {
+            // the mirror is local, no credentials required
+            fetch(mirrorDir.toUri().toString(), branchName, null, dst);
+
+            try (Git git = Git.open(dst.toFile())) {
+                StoredConfig config = git.getRepository().getConfig();
+                config.setString("remote", "origin", "url", uri);
+                config.save();
+            }
+            return null;
+        });
+    }
+
+    private void fetch(String uri, String branchName, Secret secret, Path dst) {
+        if (cloneOptions.requiresCli()) {
+            // depth > 1, shallow-since and filters aren't supported by the repository client
+            new GitCli(secret).cloneRepo(uri, branchName, cloneOptions, dst);
+            return;
+        }
+
         ImmutableGitClientConfiguration.Builder cfg = GitClientConfiguration.builder()
                 .httpLowSpeedLimit(0)
                 .sshTimeout(Duration.ofSeconds(600));
@@ -22,23 +22,59 @@ package com.walmartlabs.concord.plugins.git;
 
 import com.walmartlabs.concord.sdk.MapUtils;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
 
 public final class GitClientFactory {
 
+    public static final String USE_MIRROR_CACHE_KEY = "useMirrorCache";
+    public static final String MIRROR_CACHE_DIR_KEY = "mirrorCacheDir";
+    public static final String MIRROR_CACHE_MAX_SIZE_MB_KEY = "mirrorCacheMaxSizeMb";
+    public static final String DEPTH_KEY = "depth";
+    public static final String SHALLOW_SINCE_KEY = "shallowSince";
+    public static final String FILTER_KEY = "filter";
+    public static final String SPARSE_PATHS_KEY = "sparsePaths";
+
+    private static final long DEFAULT_MIRROR_CACHE_MAX_SIZE_MB = 10 * 1024;
+
     public static GitClient create(Map<String, Object> in) {
+        GitMirrorCache mirrorCache = createMirrorCache(in);
+
+        boolean shallowClone = isShallowClone(in);
+
         boolean useJGit = MapUtils.getBoolean(in, "useJGit", true);
         if (useJGit) {
-            return new JGitClient();
+            return new JGitClient(mirrorCache, createCloneOptions(in, shallowClone ? 1 : 0));
         }
 
-        return new GitCliClient(isShallowClone(in));
+        return new GitCliClient(shallowClone, mirrorCache, createCloneOptions(in, 0));
+    }
+
+    private static CloneOptions createCloneOptions(Map<String, Object> in, int defaultDepth) {
+        return new CloneOptions(MapUtils.getInt(in, DEPTH_KEY, defaultDepth),
+                MapUtils.getString(in, SHALLOW_SINCE_KEY),
+                MapUtils.getString(in, FILTER_KEY),
+                MapUtils.getList(in, SPARSE_PATHS_KEY, null));
     }
 
     private static boolean isShallowClone(Map<String, Object> in) {
         return MapUtils.getBoolean(in, "shallow", false);
     }
 
+    private static GitMirrorCache createMirrorCache(Map<String, Object> in) {
+        if (!MapUtils.getBoolean(in, USE_MIRROR_CACHE_KEY, false)) {
+            return null;
+        }
+
+        String dir = MapUtils.getString(in, MIRROR_CACHE_DIR_KEY);
+        Path cacheDir = dir != null ? Paths.get(dir) : Paths.get(System.getProperty("java.io.tmpdir"), "concord-git-mirrors");
+
+        long maxSizeMb = MapUtils.getNumber(in, MIRROR_CACHE_MAX_SIZE_MB_KEY, DEFAULT_MIRROR_CACHE_MAX_SIZE_MB).longValue();
+
+        return new GitMirrorCache(cacheDir, maxSizeMb * 1024 * 1024);
+    }
+
     private GitClientFactory() {
     }
 }
@@ -0,0 +1,170 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.sdk.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a GitHub action for a list of items with bounded concurrency.
+ * <p>
+ * Each item is a map of the action's parameters merged over the batch's own
+ * parameters, so the common values (e.g. {@code accessToken} or {@code org})
+ * can be specified once. The items share the pooled clients and their
+ * rate limit budget, see {@link GitHubClientRegistry}. A failed item doesn't
+ * fail the batch, its error is returned in the item's result.
+ */
+final class GitHubBatch {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubBatch.class);
+
+    static final String ITEMS_KEY = "items";
+    static final String BATCH_ACTION_KEY = "batchAction";
+    static final String PARALLELISM_KEY = "parallelism";
+
+    private static final String ACTION_KEY = "action";
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int MAX_PARALLELISM = 32;
+
+    static Map<String, Object> run(Map<String, Object> in, Executor executor) {
+        List<Object> items = MapUtils.assertList(in, ITEMS_KEY);
+        String defaultAction = MapUtils.getString(in, BATCH_ACTION_KEY);
+
+        int parallelism = MapUtils.getInt(in, PARALLELISM_KEY, DEFAULT_PARALLELISM);
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+            throw new IllegalArgumentException("Invalid '" + PARALLELISM_KEY + "' value: " + parallelism + ". Expected a number between 1 and " + MAX_PARALLELISM);
+        }
+
+        Map<String, Object> common = new HashMap<>(in);
+        common.remove(ACTION_KEY);
+        common.remove(ITEMS_KEY);
+        common.remove(BATCH_ACTION_KEY);
+        common.remove(PARALLELISM_KEY);
+
+        // validate everything before running anything
+        List<Map<String, Object>> inputs = new ArrayList<>(items.size());
+        List<GitHubTask.Action> actions = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Invalid '" + ITEMS_KEY + "' value: expected a list of objects, got " + item + " at index " + i);
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> m = (Map<String, Object>) item;
+
+            Map<String, Object> itemIn = new HashMap<>(common);
+            itemIn.putAll(m);
+
+            String action = MapUtils.getString(m, ACTION_KEY, defaultAction);
+            if (action == null) {
+                throw new IllegalArgumentException("Missing the action of the item at index " + i + ". Specify '" + BATCH_ACTION_KEY + "' or the item's '" + ACTION_KEY + "'");
+            }
+
+            GitHubTask.Action a = GitHubTask.Action.parse(action);
+            if (a == GitHubTask.Action.BATCH) {
+                throw new IllegalArgumentException("Nested batches are not supported (item at index " + i + ")");
+            }
+
+            itemIn.put(ACTION_KEY, action);
+            inputs.add(itemIn);
+            actions.add(a);
+        }
+
+        log.info("Running {} item(s) with parallelism {}...", inputs.size(), parallelism);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(inputs.size(), 1)), new BatchThreadFactory());
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                int index = i;
+                futures.add(pool.submit(() -> runItem(index, actions.get(index), inputs.get(index), executor)));
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>(futures.size());
+            int failed = 0;
+            for (Future<Map<String, Object>> f : futures) {
+                Map<String, Object> r = f.get();
+                if (!(Boolean) r.get("ok")) {
+                    failed++;
+                }
+                results.add(r);
+            }
+
+            log.info("Batch finished: {} succeeded, {} failed", results.size() - failed, failed);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("results", results);
+            result.put("succeeded", results.size() - failed);
+            result.put("failed", failed);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running the batch", e);
+        } catch (ExecutionException e) {
+            // runItem catches everything, shouldn't happen
+            throw new RuntimeException("Error while running the batch: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> runItem(int index, GitHubTask.Action action, Map<String, Object> in, Executor executor) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("index", index);
+        r.put("action", action.name().toLowerCase());
+        try {
+            r.put("result", executor.execute(action, in));
+            r.put("ok", true);
+        } catch (Exception e) {
+            log.warn("Item #{} ({}) failed: {}", index, action, e.getMessage());
+            r.put("ok", false);
+            r.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        return r;
+    }
+
+    interface Executor {
+
+        Map<String, Object> execute(GitHubTask.Action action, Map<String, Object> in);
+    }
+
+    private static final class BatchThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "github-batch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private GitHubBatch() {
+    }
+}
@@ -0,0 +1,269 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry of GitHub clients keyed by the API URL and the access token.
+ * <p>
+ * The clients are reused between task calls, so the underlying keep-alive connections
+ * (see {@link java.net.HttpURLConnection}) are reused as well instead of opening
+ * a new TLS session for each action. The registry is bounded, the least recently used
+ * and the idle clients are evicted.
+ */
+public class GitHubClientRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubClientRegistry.class);
+
+    private static final int DEFAULT_MAX_CLIENTS = 64;
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final GitHubClientRegistry INSTANCE = new GitHubClientRegistry(DEFAULT_MAX_CLIENTS, DEFAULT_IDLE_TIMEOUT_MS,
+            new GitHubResponseCache(GitHubResponseCache.DEFAULT_MAX_MEMORY_BYTES, GitHubResponseCache.DEFAULT_MAX_DISK_BYTES));
+
+    public static GitHubClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxClients;
+    private final long idleTimeoutMs;
+    private final GitHubResponseCache responseCache;
+    private final GitHubContentCache contentCache = new GitHubContentCache(GitHubContentCache.DEFAULT_MAX_BYTES);
+
+    // access-ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, HostStats> stats = new ConcurrentHashMap<>();
+
+    public GitHubClientRegistry(int maxClients, long idleTimeoutMs) {
+        this(maxClients, idleTimeoutMs, null);
+    }
+
+    public GitHubClientRegistry(int maxClients, long idleTimeoutMs, GitHubResponseCache responseCache) {
+        this.maxClients = maxClients;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @return the response cache shared by all clients or {@code null} if disabled.
+     */
+    public GitHubResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @return the content cache shared by all clients, disabled until a directory is configured.
+     */
+    public GitHubContentCache contentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Returns a shared client for the specified API URL and token.
+     * The returned client must not be reconfigured by the caller.
+     */
+    public synchronized GitHubClient get(String apiUrl, String token) {
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+
+        Key key = new Key(apiUrl, token);
+        HostStats hostStats = stats.computeIfAbsent(hostOf(apiUrl), HostStats::new);
+
+        Entry e = clients.get(key);
+        if (e == null) {
+            PooledGitHubClient client = PooledGitHubClient.create(apiUrl, hostStats, responseCache, key.toString());
+            if (token != null) {
+                client.setOAuth2Token(token);
+            }
+
+            e = new Entry(client, hostStats);
+            clients.put(key, e);
+            hostStats.created.incrementAndGet();
+
+            evictEldest();
+        } else {
+            hostStats.reused.incrementAndGet();
+        }
+
+        e.lastUsed = now;
+        return e.client;
+    }
+
+    /**
+     * @return per-host statistics: number of active, created, reused and evicted clients,
+     * the number of requests made, the number of responses served from the cache and
+     * the rate limit metrics (throttled responses, number of waits and the total wait time).
+     */
+    public synchronized Map<String, Map<String, Object>> stats() {
+        Map<String, Integer> active = new HashMap<>();
+        for (Entry e : clients.values()) {
+            active.merge(e.stats.host, 1, Integer::sum);
+        }
+
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (HostStats s : stats.values()) {
+            result.put(s.host, s.toMap(active.getOrDefault(s.host, 0)));
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        clients.clear();
+        stats.clear();
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Entry> it = clients.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (now - e.lastUsed < idleTimeoutMs) {
+                // the rest of the entries were used more recently
+                break;
+            }
+
+            it.remove();
+            e.stats.evicted.incrementAndGet();
+            log.debug("evictIdle -> removed a client for {}", e.stats.host);
+        }
+    }
+
+    private void evictEldest() {
+        Iterator<Entry> it = clients.values().iterator();
+        while (clients.size() > maxClients && it.hasNext()) {
+            Entry e = it.next();
+            it.remove();
+            e.stats.evicted.incrementAndGet();
+            log.debug("evictEldest -> removed a client for {}", e.stats.host);
+        }
+    }
+
+    private static String hostOf(String apiUrl) {
+        try {
+            return new URL(apiUrl).getHost();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid GitHub API URL: " + apiUrl, e);
+        }
+    }
+
+    static final class HostStats {
+
+        private final String host;
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private final AtomicLong evicted = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong notModified = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong waits = new AtomicLong();
+        private final AtomicLong waitTimeMs = new AtomicLong();
+
+        HostStats(String host) {
+            this.host = host;
+        }
+
+        void onRequest() {
+            requests.incrementAndGet();
+        }
+
+        void onNotModified() {
+            notModified.incrementAndGet();
+        }
+
+        void onThrottled() {
+            throttled.incrementAndGet();
+        }
+
+        void onWait(long ms) {
+            waits.incrementAndGet();
+            waitTimeMs.addAndGet(ms);
+        }
+
+        Map<String, Object> toMap(int active) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("activeClients", active);
+            m.put("createdClients", created.get());
+            m.put("reusedClients", reused.get());
+            m.put("evictedClients", evicted.get());
+            m.put("requests", requests.get());
+            m.put("notModified", notModified.get());
+            m.put("throttled", throttled.get());
+            m.put("waits", waits.get());
+            m.put("waitTimeMs", waitTimeMs.get());
+            return m;
+        }
+    }
+
+    private static final class Entry {
+
+        private final PooledGitHubClient client;
+        private final HostStats stats;
+        private long lastUsed;
+
+        private Entry(PooledGitHubClient client, HostStats stats) {
+            this.client = client;
+            this.stats = stats;
+        }
+    }
+
+    private static final class Key {
+
+        private final String apiUrl;
+        private final String tokenHash;
+
+        private Key(String apiUrl, String token) {
+            this.apiUrl = apiUrl;
+            this.tokenHash = token != null ? Utils.sha256Base64(token) : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return apiUrl.equals(key.apiUrl) && Objects.equals(tokenHash, key.tokenHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiUrl, tokenHash);
+        }
+
+        @Override
+        public String toString() {
+            return apiUrl + " " + tokenHash;
+        }
+    }
+}
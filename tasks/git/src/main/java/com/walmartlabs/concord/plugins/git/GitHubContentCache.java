@@ -0,0 +1,279 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed disk cache for the immutable GitHub data: commits and file contents
+ * requested by a commit SHA, blobs requested by a blob SHA.
+ * <p>
+ * Unlike {@link GitHubResponseCache} the entries are never revalidated, so no requests are made
+ * for a cache hit. When the total size of the entries exceeds the limit the least recently used
+ * entries are removed. The entries are written atomically, so the directory can be shared
+ * by several processes.
+ */
+public class GitHubContentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubContentCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 512 * 1024 * 1024;
+
+    private static final Pattern SHA_PATTERN = Pattern.compile("[0-9a-fA-F]{40}|[0-9a-fA-F]{64}");
+    private static final String ENTRY_SUFFIX = ".content";
+
+    /**
+     * @return {@code true} if the value is a full commit (or blob) SHA. Branches, tags
+     * and abbreviated SHAs can point to different objects over time.
+     */
+    public static boolean isImmutableRef(String ref) {
+        return ref != null && SHA_PATTERN.matcher(ref).matches();
+    }
+
+    /**
+     * @param token the access token. The cached content is served without any requests,
+     *              so the entries are never shared between tokens, same as in {@link GitHubResponseCache}
+     * @return the cache key for the specified parts, e.g. the repository, the SHA and the path.
+     */
+    public static String key(String apiUrl, String token, String... parts) {
+        String tokenHash = token != null ? Utils.sha256Hex(token) : "";
+        return Utils.sha256Hex(apiUrl + "\n" + tokenHash + "\n" + String.join("\n", parts));
+    }
+
+    private final long maxBytes;
+
+    private Path dir;
+    private long size;
+
+    public GitHubContentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized void enable(Path dir) {
+        if (dir.equals(this.dir)) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Can't create the content cache directory " + dir + ": " + e.getMessage(), e);
+        }
+
+        this.dir = dir;
+        this.size = sizeOf(dir);
+    }
+
+    public synchronized boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * @return the cached data or {@code null} if there's no such entry.
+     */
+    public byte[] get(String key) {
+        Path p = entry(key);
+        if (p == null) {
+            return null;
+        }
+
+        try {
+            byte[] result = Files.readAllBytes(p);
+            touch(p);
+            return result;
+        } catch (NoSuchFileException e) {
+            // evicted in the meantime
+            return null;
+        } catch (IOException e) {
+            log.warn("get -> can't read {}: {}", p, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copies the cached data into the specified file.
+     *
+     * @return {@code false} if there's no such entry.
+     */
+    public boolean copyTo(String key, Path dst) throws IOException {
+        Path p = entry(key);
+        if (p == null) {
+            return false;
+        }
+
+        Path parent = dst.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tmp = Files.createTempFile(parent, ".content", ".tmp");
+        try {
+            Files.copy(p, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            // evicted in the meantime
+            return false;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        touch(p);
+        return true;
+    }
+
+    public void put(String key, byte[] data) {
+        Path dir = dir();
+        if (dir == null) {
+            return;
+        }
+
+        try {
+            Path tmp = Files.createTempFile(dir, "content", ".tmp");
+            Files.write(tmp, data);
+            commit(tmp, key);
+        } catch (IOException e) {
+            log.warn("put -> can't write {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Stores a copy of the specified file.
+     */
+    public void put(String key, Path src) {
+        Path dir = dir();
+        if (dir == null) {
+            return;
+        }
+
+        try {
+            Path tmp = Files.createTempFile(dir, "content", ".tmp");
+            Files.copy(src, tmp, StandardCopyOption.REPLACE_EXISTING);
+            commit(tmp, key);
+        } catch (IOException e) {
+            log.warn("put -> can't write {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void commit(Path tmp, String key) throws IOException {
+        long entrySize = Files.size(tmp);
+        Path dst = dir().resolve(key + ENTRY_SUFFIX);
+
+        synchronized (this) {
+            long replacedSize;
+            try {
+                replacedSize = Files.exists(dst) ? Files.size(dst) : 0;
+                Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            size += entrySize - replacedSize;
+            if (size > maxBytes) {
+                trim(key);
+            }
+        }
+    }
+
+    private synchronized Path dir() {
+        return dir;
+    }
+
+    private Path entry(String key) {
+        Path dir = dir();
+        if (dir == null) {
+            return null;
+        }
+
+        Path p = dir.resolve(key + ENTRY_SUFFIX);
+        return Files.exists(p) ? p : null;
+    }
+
+    private void trim(String currentKey) {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .sorted(Comparator.comparingLong(GitHubContentCache::lastModified))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("trim -> can't list {}: {}", dir, e.getMessage());
+            return;
+        }
+
+        // other processes can write into the same directory
+        size = sizeOf(dir);
+        for (Path p : files) {
+            if (size <= maxBytes / 2) {
+                break;
+            }
+
+            if (p.getFileName().toString().equals(currentKey + ENTRY_SUFFIX)) {
+                continue;
+            }
+
+            try {
+                long entrySize = Files.size(p);
+                Files.deleteIfExists(p);
+                size -= entrySize;
+            } catch (IOException e) {
+                log.warn("trim -> can't remove {}: {}", p, e.getMessage());
+            }
+        }
+    }
+
+    private static void touch(Path p) {
+        try {
+            Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted in the meantime or not writable, doesn't matter
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path dir) {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.mapToLong(p -> {
+                try {
+                    return Files.size(p);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
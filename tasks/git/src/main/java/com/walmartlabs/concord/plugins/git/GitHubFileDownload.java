@@ -0,0 +1,115 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams file contents from GitHub to disk using the raw media type,
+ * without keeping the whole file in memory.
+ */
+final class GitHubFileDownload {
+
+    static final String RAW_CONTENT_TYPE = "application/vnd.github.raw";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Downloads the file to {@code dst}. The file is written to a temporary file first and moved
+     * in place only if the download (and the verification) succeeded.
+     *
+     * @param expectedSha optional git blob SHA of the file
+     * @return the file's size and its git blob SHA (if verified).
+     */
+    static Map<String, Object> download(GitHubClient client, String uri, Map<String, String> params,
+                                        Path dst, String expectedSha) throws IOException {
+
+        GitHubRequest request = new GitHubRequest()
+                .setUri(uri)
+                .setResponseContentType(RAW_CONTENT_TYPE);
+        if (params != null) {
+            request.setParams(params);
+        }
+
+        Path parent = dst.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tmp = Files.createTempFile(parent, ".download", ".tmp");
+        try {
+            long size;
+            try (InputStream in = client.getStream(request);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                size = Utils.copy(in, out);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("size", size);
+
+            if (expectedSha != null) {
+                String sha = blobSha(tmp, size);
+                if (!sha.equalsIgnoreCase(expectedSha.trim())) {
+                    throw new IOException("SHA mismatch: expected " + expectedSha + ", got " + sha);
+                }
+                result.put("sha", sha);
+            }
+
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING);
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Same as {@code git hash-object}.
+     */
+    static String blobSha(Path file, long size) throws IOException {
+        MessageDigest md = Utils.digest("SHA-1");
+
+        md.update(("blob " + size + "\0").getBytes(StandardCharsets.US_ASCII));
+
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                md.update(buf, 0, read);
+            }
+        }
+
+        return Utils.hex(md.digest());
+    }
+
+    private GitHubFileDownload() {
+    }
+}
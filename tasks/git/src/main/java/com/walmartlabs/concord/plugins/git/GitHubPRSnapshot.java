@@ -0,0 +1,196 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.sdk.MapUtils;
+
+import java.util.*;
+
+/**
+ * GraphQL query for a pull request snapshot: the PR's metadata, commits,
+ * statuses and check runs of the head commit, fetched in one request.
+ */
+final class GitHubPRSnapshot {
+
+    static final String COMMITS = "commits";
+    static final String STATUSES = "statuses";
+    static final String CHECK_RUNS = "checkRuns";
+
+    private static final Set<String> ALL_FIELDS = new LinkedHashSet<>(Arrays.asList(COMMITS, STATUSES, CHECK_RUNS));
+
+    private static final int MAX_LIMIT = 100;
+
+    /**
+     * @param fields the optional parts of the snapshot, all of them if {@code null}.
+     */
+    static Set<String> parseFields(List<String> fields) {
+        if (fields == null) {
+            return ALL_FIELDS;
+        }
+
+        Set<String> result = new HashSet<>();
+        for (String f : fields) {
+            if (!ALL_FIELDS.contains(f)) {
+                throw new IllegalArgumentException("Unknown field: '" + f + "'. Expected any of " + ALL_FIELDS);
+            }
+            result.add(f);
+        }
+        return result;
+    }
+
+    static int assertLimit(String key, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Invalid '" + key + "' value: " + limit + ". Expected a number between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * @return the GraphQL request body. Only the variables used by the selected fields are declared,
+     * GitHub rejects queries with unused variables.
+     */
+    static Map<String, Object> request(String owner, String name, int number, Set<String> fields, int commitsLimit, int checksLimit) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("owner", owner);
+        variables.put("name", name);
+        variables.put("number", number);
+
+        StringBuilder vars = new StringBuilder("$owner: String!, $name: String!, $number: Int!");
+
+        StringBuilder q = new StringBuilder();
+        q.append("repository(owner: $owner, name: $name) { pullRequest(number: $number) { ")
+                .append("number title state isDraft merged mergeable url createdAt updatedAt ")
+                .append("author { login } headRefName headRefOid baseRefName baseRefOid ");
+
+        if (fields.contains(COMMITS)) {
+            vars.append(", $commits: Int!");
+            variables.put("commits", commitsLimit);
+            q.append("commits(last: $commits) { totalCount nodes { commit { oid messageHeadline committedDate author { name email } } } } ");
+        }
+
+        if (fields.contains(STATUSES) || fields.contains(CHECK_RUNS)) {
+            q.append("head: commits(last: 1) { nodes { commit { ");
+            if (fields.contains(STATUSES)) {
+                q.append("status { state contexts { context state description targetUrl } } ");
+            }
+            if (fields.contains(CHECK_RUNS)) {
+                vars.append(", $checks: Int!");
+                variables.put("checks", checksLimit);
+                q.append("checkSuites(first: $checks) { nodes { app { slug } checkRuns(first: $checks) { nodes { name status conclusion detailsUrl } } } } ");
+            }
+            q.append("} } } ");
+        }
+
+        q.append("} }");
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("query", "query(" + vars + ") { " + q + " }");
+        body.put("variables", variables);
+        return body;
+    }
+
+    /**
+     * Flattens the GraphQL response into the task's result.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> toResult(Map<String, Object> response, Set<String> fields) {
+        List<Map<String, Object>> errors = MapUtils.getList(response, "errors", Collections.emptyList());
+        if (!errors.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (Map<String, Object> e : errors) {
+                if (sb.length() > 0) {
+                    sb.append("; ");
+                }
+                sb.append(e.get("message"));
+            }
+            throw new RuntimeException("GraphQL query failed: " + sb);
+        }
+
+        Map<String, Object> data = MapUtils.getMap(response, "data", Collections.emptyMap());
+        Map<String, Object> repo = MapUtils.getMap(data, "repository", null);
+        Map<String, Object> pr = repo != null ? MapUtils.getMap(repo, "pullRequest", null) : null;
+        if (pr == null) {
+            throw new RuntimeException("Pull request not found");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+
+        Map<String, Object> meta = new HashMap<>(pr);
+        meta.remove(COMMITS);
+        meta.remove("head");
+        Map<String, Object> author = (Map<String, Object>) meta.remove("author");
+        meta.put("author", author != null ? author.get("login") : null);
+        result.put("pr", meta);
+
+        if (fields.contains(COMMITS)) {
+            Map<String, Object> commits = MapUtils.getMap(pr, COMMITS, Collections.emptyMap());
+            List<Map<String, Object>> list = new ArrayList<>();
+            for (Map<String, Object> n : nodes(commits)) {
+                Map<String, Object> c = MapUtils.getMap(n, "commit", Collections.emptyMap());
+                Map<String, Object> a = MapUtils.getMap(c, "author", Collections.emptyMap());
+                Map<String, Object> m = new HashMap<>();
+                m.put("sha", c.get("oid"));
+                m.put("message", c.get("messageHeadline"));
+                m.put("date", c.get("committedDate"));
+                m.put("authorName", a.get("name"));
+                m.put("authorEmail", a.get("email"));
+                list.add(m);
+            }
+            result.put(COMMITS, list);
+            result.put("commitCount", commits.get("totalCount"));
+        }
+
+        Map<String, Object> head = Collections.emptyMap();
+        List<Map<String, Object>> headNodes = nodes(MapUtils.getMap(pr, "head", Collections.emptyMap()));
+        if (!headNodes.isEmpty()) {
+            head = MapUtils.getMap(headNodes.get(0), "commit", Collections.emptyMap());
+        }
+
+        if (fields.contains(STATUSES)) {
+            // null if there are no statuses
+            Map<String, Object> status = MapUtils.getMap(head, "status", null);
+            result.put(STATUSES, status != null ? status : Collections.emptyMap());
+        }
+
+        if (fields.contains(CHECK_RUNS)) {
+            List<Map<String, Object>> runs = new ArrayList<>();
+            for (Map<String, Object> suite : nodes(MapUtils.getMap(head, "checkSuites", Collections.emptyMap()))) {
+                Map<String, Object> app = MapUtils.getMap(suite, "app", Collections.emptyMap());
+                for (Map<String, Object> run : nodes(MapUtils.getMap(suite, "checkRuns", Collections.emptyMap()))) {
+                    Map<String, Object> m = new HashMap<>(run);
+                    m.put("app", app.get("slug"));
+                    runs.add(m);
+                }
+            }
+            result.put(CHECK_RUNS, runs);
+        }
+
+        return result;
+    }
+
+    private static List<Map<String, Object>> nodes(Map<String, Object> connection) {
+        return MapUtils.getList(connection, "nodes", Collections.emptyList());
+    }
+
+    private GitHubPRSnapshot() {
+    }
+}
@@ -0,0 +1,170 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.sdk.MapUtils;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
+import org.eclipse.egit.github.core.client.PagedRequest;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Page by page iteration over GitHub list endpoints with an optional limit.
+ * <p>
+ * The cursor is {@code <page>} or {@code <page>:<offset>} if the limit was reached
+ * in the middle of a page. The same {@code pageSize} must be used with the cursor.
+ */
+final class GitHubPages {
+
+    static final String LIMIT_KEY = "limit";
+    static final String PAGE_SIZE_KEY = "pageSize";
+    static final String CURSOR_KEY = "cursor";
+    static final String NEXT_CURSOR_KEY = "nextCursor";
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Fetches the items page by page, stops as soon as the limit is reached.
+     *
+     * @return the cursor of the next item or {@code null} if there are no more items.
+     */
+    static <V> String fetch(GitHubClient client, String uri, Map<String, String> params, Type type,
+                            Params p, Consumer<V> consumer) throws IOException {
+
+        PagedRequest<V> request = new PagedRequest<>(p.page, p.pageSize);
+        request.setUri(uri);
+        request.setType(type);
+        if (params != null) {
+            request.setParams(params);
+        }
+
+        PageIterator<V> it = new PageIterator<>(request, client);
+
+        int count = 0;
+        int skip = p.offset;
+        while (it.hasNext()) {
+            int page = it.getNextPage();
+
+            Collection<V> items;
+            try {
+                items = it.next();
+            } catch (NoSuchPageException e) {
+                throw e.getCause();
+            }
+
+            int i = 0;
+            for (V item : items) {
+                if (i < skip) {
+                    i++;
+                    continue;
+                }
+
+                if (p.limit > 0 && count >= p.limit) {
+                    return page + ":" + i;
+                }
+
+                consumer.accept(item);
+                count++;
+                i++;
+            }
+
+            skip = 0;
+
+            if (p.limit > 0 && count >= p.limit) {
+                return it.hasNext() ? String.valueOf(it.getNextPage()) : null;
+            }
+        }
+
+        return null;
+    }
+
+    static final class Params {
+
+        static Params from(Map<String, Object> in) {
+            boolean paged = in.containsKey(LIMIT_KEY) || in.containsKey(PAGE_SIZE_KEY) || in.containsKey(CURSOR_KEY);
+
+            int limit = MapUtils.getInt(in, LIMIT_KEY, 0);
+            if (limit < 0) {
+                throw new IllegalArgumentException("Invalid '" + LIMIT_KEY + "' value: " + limit + ". Expected a positive number");
+            }
+
+            int pageSize = MapUtils.getInt(in, PAGE_SIZE_KEY, limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : MAX_PAGE_SIZE);
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Invalid '" + PAGE_SIZE_KEY + "' value: " + pageSize + ". Expected a number between 1 and " + MAX_PAGE_SIZE);
+            }
+
+            int page = PagedRequest.PAGE_FIRST;
+            int offset = 0;
+
+            String cursor = MapUtils.getString(in, CURSOR_KEY);
+            if (cursor != null) {
+                try {
+                    int i = cursor.indexOf(':');
+                    if (i < 0) {
+                        page = Integer.parseInt(cursor.trim());
+                    } else {
+                        page = Integer.parseInt(cursor.substring(0, i).trim());
+                        offset = Integer.parseInt(cursor.substring(i + 1).trim());
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid '" + CURSOR_KEY + "' value: '" + cursor + "'. Expected the '" + NEXT_CURSOR_KEY + "' value of the previous call");
+                }
+
+                if (page < PagedRequest.PAGE_FIRST || offset < 0) {
+                    throw new IllegalArgumentException("Invalid '" + CURSOR_KEY + "' value: '" + cursor + "'. Expected the '" + NEXT_CURSOR_KEY + "' value of the previous call");
+                }
+            }
+
+            return new Params(paged, limit, pageSize, page, offset);
+        }
+
+        private final boolean paged;
+        private final int limit;
+        private final int pageSize;
+        private final int page;
+        private final int offset;
+
+        private Params(boolean paged, int limit, int pageSize, int page, int offset) {
+            this.paged = paged;
+            this.limit = limit;
+            this.pageSize = pageSize;
+            this.page = page;
+            this.offset = offset;
+        }
+
+        /**
+         * @return {@code true} if any of the paging parameters were specified.
+         */
+        boolean isPaged() {
+            return paged;
+        }
+    }
+
+    private GitHubPages() {
+    }
+}
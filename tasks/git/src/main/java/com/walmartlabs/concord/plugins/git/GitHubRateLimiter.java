@@ -0,0 +1,231 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket for the requests made with a single GitHub token.
+ * <p>
+ * The bucket is filled from the {@code X-RateLimit-*} response headers. When the bucket
+ * is running low the requests are spread over the time left until the reset, when it's
+ * empty the requests wait for the reset. Throttled requests (403 and 429 responses caused
+ * by the primary or the secondary rate limits) are retried with a backoff and jitter,
+ * the backoff is applied to all threads using the same token.
+ */
+public class GitHubRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubRateLimiter.class);
+
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_WAIT_MS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Start pacing the requests when less than 1/PACING_THRESHOLD of the limit is left.
+     */
+    private static final int PACING_THRESHOLD = 10;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The last 403 or 429 response received by the current thread.
+     */
+    private static final ThreadLocal<Throttle> lastThrottle = new ThreadLocal<>();
+
+    private final GitHubClientRegistry.HostStats stats;
+
+    private int limit = -1;
+    private int remaining = -1;
+    private long resetAt;
+    private long nextAt;
+    private long blockedUntil;
+
+    public GitHubRateLimiter(GitHubClientRegistry.HostStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Waits until the next request is allowed.
+     */
+    public void acquire() throws IOException {
+        long wait;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+
+            long at = Math.max(now, Math.max(blockedUntil, nextAt));
+            if (remaining == 0 && resetAt > now) {
+                at = Math.max(at, resetAt);
+            }
+
+            if (remaining > 0 && limit > 0 && remaining < limit / PACING_THRESHOLD && resetAt > at) {
+                nextAt = at + (resetAt - at) / remaining;
+            }
+
+            if (remaining > 0) {
+                remaining--;
+            }
+
+            wait = at - now;
+        }
+
+        if (wait <= 0) {
+            return;
+        }
+
+        if (wait > MAX_WAIT_MS) {
+            throw new IOException("GitHub API rate limit exceeded, the limit resets in " + TimeUnit.MILLISECONDS.toSeconds(wait) + "s");
+        }
+
+        log.info("Waiting {}ms for the GitHub API rate limit...", wait);
+        stats.onWait(wait);
+
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the GitHub API rate limit");
+        }
+    }
+
+    /**
+     * Updates the bucket using the response headers.
+     */
+    public void update(HttpURLConnection c) {
+        int newLimit = c.getHeaderFieldInt("X-RateLimit-Limit", -1);
+        int newRemaining = c.getHeaderFieldInt("X-RateLimit-Remaining", -1);
+        long newResetAt = c.getHeaderFieldLong("X-RateLimit-Reset", -1);
+
+        synchronized (this) {
+            if (newLimit >= 0) {
+                limit = newLimit;
+            }
+            if (newRemaining >= 0) {
+                remaining = newRemaining;
+            }
+            if (newResetAt >= 0) {
+                resetAt = TimeUnit.SECONDS.toMillis(newResetAt);
+            }
+            if (remaining >= limit / PACING_THRESHOLD) {
+                nextAt = 0;
+            }
+        }
+
+        int code;
+        try {
+            code = c.getResponseCode();
+        } catch (IOException e) {
+            code = -1;
+        }
+
+        if (code != HttpURLConnection.HTTP_FORBIDDEN && code != HTTP_TOO_MANY_REQUESTS) {
+            lastThrottle.remove();
+            return;
+        }
+
+        long delay = -1;
+        long retryAfter = c.getHeaderFieldLong("Retry-After", -1);
+        if (retryAfter >= 0) {
+            delay = TimeUnit.SECONDS.toMillis(retryAfter);
+        } else if (newRemaining == 0 && newResetAt >= 0) {
+            delay = Math.max(0, TimeUnit.SECONDS.toMillis(newResetAt) - System.currentTimeMillis());
+        }
+
+        lastThrottle.set(new Throttle(code, delay));
+    }
+
+    /**
+     * Calls the specified request, retries it if it was throttled.
+     */
+    public <T> T call(Call<T> call) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            lastThrottle.remove();
+
+            try {
+                return call.call();
+            } catch (IOException e) {
+                // egit throws RequestException only for some of the status codes, e.g. not for 429
+                Throttle t = lastThrottle.get();
+                if (attempt >= MAX_RETRIES || !isThrottled(t, e)) {
+                    throw e;
+                }
+
+                long backoff = t.delay >= 0 ? t.delay + jitter(BASE_BACKOFF_MS) : backoff(attempt);
+                log.warn("GitHub API request throttled ({}), retrying in {}ms...", t.code, backoff);
+                stats.onThrottled();
+
+                synchronized (this) {
+                    blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + backoff);
+                }
+            } finally {
+                lastThrottle.remove();
+            }
+        }
+    }
+
+    private static boolean isThrottled(Throttle t, IOException e) {
+        if (t == null) {
+            return false;
+        }
+
+        if (t.code == HTTP_TOO_MANY_REQUESTS || t.delay >= 0) {
+            return true;
+        }
+
+        // secondary rate limits don't always come with Retry-After
+        String msg = e.getMessage();
+        return msg != null && msg.toLowerCase().contains("rate limit");
+    }
+
+    private static long backoff(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+        return delay / 2 + jitter(delay / 2);
+    }
+
+    private static long jitter(long max) {
+        return ThreadLocalRandom.current().nextLong(max + 1);
+    }
+
+    public interface Call<T> {
+
+        T call() throws IOException;
+    }
+
+    private static final class Throttle {
+
+        private final int code;
+        private final long delay;
+
+        private Throttle(int code, long delay) {
+            this.code = code;
+            this.delay = delay;
+        }
+    }
+}
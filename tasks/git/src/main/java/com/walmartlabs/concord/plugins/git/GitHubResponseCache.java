@@ -0,0 +1,318 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded cache of GitHub API responses and their validators ({@code ETag}, {@code Last-Modified}).
+ * <p>
+ * Cached responses are revalidated with conditional requests, {@code 304 Not Modified}
+ * responses don't count against the rate limit. Entries evicted from memory can be
+ * spilled to disk, see {@link #enableSpill(Path)}.
+ */
+public class GitHubResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubResponseCache.class);
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 16 * 1024 * 1024;
+    public static final long DEFAULT_MAX_DISK_BYTES = 256 * 1024 * 1024;
+
+    private static final String[] CACHED_HEADERS = {"ETag", "Last-Modified", "Link", "Content-Type"};
+    private static final String SPILL_SUFFIX = ".response";
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+
+    // access-ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private Path spillDir;
+    private long diskBytes;
+
+    public GitHubResponseCache(long maxMemoryBytes, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Enables writing of the entries evicted from memory into the specified directory.
+     */
+    public synchronized void enableSpill(Path dir) {
+        if (dir.equals(spillDir)) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Can't create the response cache directory " + dir + ": " + e.getMessage(), e);
+        }
+
+        this.spillDir = dir;
+        this.diskBytes = sizeOf(dir);
+    }
+
+    public synchronized CachedResponse get(String key) {
+        CachedResponse r = entries.get(key);
+        if (r != null || spillDir == null) {
+            return r;
+        }
+
+        Path p = spillFile(key);
+        if (!Files.exists(p)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p)))) {
+            r = CachedResponse.read(in);
+        } catch (IOException e) {
+            log.warn("get -> can't read {}: {}", p, e.getMessage());
+            return null;
+        }
+
+        // back to memory, the spilled copy is kept until it's evicted
+        putInMemory(key, r);
+        return r;
+    }
+
+    public synchronized void put(String key, CachedResponse r) {
+        if (r.size() > maxMemoryBytes / 8) {
+            // not worth evicting a lot of smaller entries
+            if (spillDir != null) {
+                spill(key, r);
+            }
+            return;
+        }
+
+        putInMemory(key, r);
+    }
+
+    private void putInMemory(String key, CachedResponse r) {
+        CachedResponse prev = entries.put(key, r);
+        if (prev != null) {
+            memoryBytes -= prev.size();
+        }
+        memoryBytes += r.size();
+
+        Iterator<Map.Entry<String, CachedResponse>> it = entries.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<String, CachedResponse> e = it.next();
+            it.remove();
+            memoryBytes -= e.getValue().size();
+
+            if (spillDir != null) {
+                spill(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private void spill(String key, CachedResponse r) {
+        Path p = spillFile(key);
+        try {
+            Path tmp = Files.createTempFile(spillDir, "response", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                r.write(out);
+            }
+            long entrySize = Files.size(tmp);
+            long replacedSize = Files.exists(p) ? Files.size(p) : 0;
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskBytes += entrySize - replacedSize;
+        } catch (IOException e) {
+            log.warn("spill -> can't write {}: {}", p, e.getMessage());
+            return;
+        }
+
+        if (diskBytes > maxDiskBytes) {
+            trimDisk();
+        }
+    }
+
+    private void trimDisk() {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(spillDir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(SPILL_SUFFIX))
+                    .sorted(Comparator.comparingLong(GitHubResponseCache::lastModified))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("trimDisk -> can't list {}: {}", spillDir, e.getMessage());
+            return;
+        }
+
+        diskBytes = sizeOf(spillDir);
+        for (Path p : files) {
+            if (diskBytes <= maxDiskBytes / 2) {
+                break;
+            }
+
+            try {
+                long size = Files.size(p);
+                Files.deleteIfExists(p);
+                diskBytes -= size;
+            } catch (IOException e) {
+                log.warn("trimDisk -> can't remove {}: {}", p, e.getMessage());
+            }
+        }
+    }
+
+    private Path spillFile(String key) {
+        return spillDir.resolve(Utils.sha256Hex(key) + SPILL_SUFFIX);
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path dir) {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.mapToLong(p -> {
+                try {
+                    return Files.size(p);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public static final class CachedResponse {
+
+        /**
+         * @return a cacheable copy of the response or {@code null} if the response has no validators.
+         */
+        public static CachedResponse from(HttpURLConnection c, byte[] body) {
+            Map<String, String> headers = new HashMap<>();
+            for (String h : CACHED_HEADERS) {
+                String v = c.getHeaderField(h);
+                if (v != null) {
+                    headers.put(h, v);
+                }
+            }
+
+            if (!headers.containsKey("ETag") && !headers.containsKey("Last-Modified")) {
+                return null;
+            }
+
+            return new CachedResponse(headers, body);
+        }
+
+        private static CachedResponse read(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            Map<String, String> headers = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+
+            return new CachedResponse(headers, body);
+        }
+
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        private CachedResponse(Map<String, String> headers, byte[] body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public void addValidators(HttpURLConnection c) {
+            String etag = headers.get("ETag");
+            if (etag != null) {
+                c.setRequestProperty("If-None-Match", etag);
+            }
+
+            String lastModified = headers.get("Last-Modified");
+            if (lastModified != null) {
+                c.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        public InputStream body() {
+            return new ByteArrayInputStream(body);
+        }
+
+        /**
+         * @return a connection stub with the cached headers (e.g. the page links).
+         */
+        public HttpURLConnection toConnection(URL url) {
+            return new HttpURLConnection(url) {
+
+                @Override
+                public String getHeaderField(String name) {
+                    for (Map.Entry<String, String> e : headers.entrySet()) {
+                        if (e.getKey().equalsIgnoreCase(name)) {
+                            return e.getValue();
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public void connect() {
+                }
+
+                @Override
+                public void disconnect() {
+                }
+
+                @Override
+                public boolean usingProxy() {
+                    return false;
+                }
+            };
+        }
+
+        long size() {
+            return body.length + 256L;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> e : headers.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            out.writeInt(body.length);
+            out.write(body);
+        }
+    }
+}
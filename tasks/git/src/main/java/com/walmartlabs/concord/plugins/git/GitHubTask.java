@@ -22,6 +22,7 @@ package com.walmartlabs.concord.plugins.git;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.reflect.TypeToken;
 import com.walmartlabs.concord.sdk.MapUtils;
 import org.eclipse.egit.github.core.*;
 import org.eclipse.egit.github.core.client.GitHubClient;
@@ -32,9 +33,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static com.walmartlabs.concord.plugins.git.Utils.getBoolean;
 import static com.walmartlabs.concord.plugins.git.Utils.getUrl;
 import static com.walmartlabs.concord.sdk.MapUtils.*;
 
@@ -43,6 +49,8 @@ public class GitHubTask {
     private static final Logger log = LoggerFactory.getLogger(GitHubTask.class);
 
     private static final String API_URL_KEY = "apiUrl";
+    private static final String RESPONSE_CACHE_DIR_KEY = "responseCacheDir";
+    private static final String CONTENT_CACHE_DIR_KEY = "contentCacheDir";
     private static final String ACTION_KEY = "action";
     private static final String GITHUB_ACCESSTOKEN = "accessToken";
     private static final String GITHUB_ORGNAME = "org";
@@ -69,6 +77,8 @@ public class GitHubTask {
     private static final String GITHUB_FORKTARGETORG = "targetOrg";
     private static final String GITHUB_PATH = "path";
     private static final String GITHUB_REF = "ref";
+    private static final String GITHUB_SAVE_AS = "saveAs";
+    private static final String GITHUB_SHA = "sha";
     private static final String GITHUB_HOOK_URL = "url";
     private static final String GITHUB_HOOK_EVENTS = "events";
     private static final String GITHUB_HOOK_CFG = "config";
@@ -81,6 +91,10 @@ public class GitHubTask {
     private static final String STATUS_CHECK_DESCRIPTION = "description";
     private static final String STATUS_CHECK_CONTEXT = "context";
     private static final String GITHUB_PR_STATE = "state";
+    private static final String GITHUB_COMPACT = "compact";
+    private static final String GITHUB_FIELDS = "fields";
+    private static final String GITHUB_COMMITS_LIMIT = "commitsLimit";
+    private static final String GITHUB_CHECKS_LIMIT = "checksLimit";
 
     private static final String ISSUE_BODY = "body";
     private static final String ISSUE_TITLE = "title";
@@ -100,12 +114,51 @@ public class GitHubTask {
     private static final TypeReference<List<Map<String, Object>>> LIST_OF_OBJECT_TYPE = new TypeReference<List<Map<String, Object>>>() {
     };
 
+    private static final Type BRANCH_LIST_TYPE = new TypeToken<List<RepositoryBranch>>() {
+    }.getType();
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<RepositoryTag>>() {
+    }.getType();
+
+    private static final Type PR_LIST_TYPE = new TypeToken<List<PullRequest>>() {
+    }.getType();
+
+    private final Path processWorkDir;
+
+    public GitHubTask() {
+        this(null);
+    }
+
+    public GitHubTask(Path processWorkDir) {
+        this.processWorkDir = processWorkDir;
+    }
+
     public Map<String, Object> execute(Map<String, Object> in, Map<String, Object> defaults) {
         Action action = getAction(in);
         String gitHubUri = getUrl(defaults, in, API_URL_KEY);
         log.info("Starting '{}' action...", action);
         log.info("Using GitHub apiUrl {}", gitHubUri);
 
+        String responseCacheDir = getString(in, RESPONSE_CACHE_DIR_KEY);
+        GitHubResponseCache responseCache = GitHubClientRegistry.getInstance().responseCache();
+        if (responseCacheDir != null && responseCache != null) {
+            responseCache.enableSpill(Paths.get(responseCacheDir));
+        }
+
+        String contentCacheDir = getString(in, CONTENT_CACHE_DIR_KEY);
+        if (contentCacheDir != null) {
+            GitHubClientRegistry.getInstance().contentCache().enable(Paths.get(contentCacheDir));
+        }
+
+        if (action == Action.BATCH) {
+            // the items can override the batch's apiUrl
+            return GitHubBatch.run(in, (a, itemIn) -> execute(a, itemIn, getUrl(defaults, itemIn, API_URL_KEY)));
+        }
+
+        return execute(action, in, gitHubUri);
+    }
+
+    private Map<String, Object> execute(Action action, Map<String, Object> in, String gitHubUri) {
         switch (action) {
             case CREATEPR: {
                 return createPR(in, gitHubUri);
@@ -155,6 +208,9 @@ public class GitHubTask {
             case GETPR: {
                 return getPR(in, gitHubUri);
             }
+            case GETPRSNAPSHOT: {
+                return getPRSnapshot(in, gitHubUri);
+            }
             case GETPRLIST: {
                 return getPRList(in, gitHubUri);
             }
@@ -171,10 +227,13 @@ public class GitHubTask {
                 return deleteRepo(in, gitHubUri);
             }
             case GETCONTENT: {
-                return getContent(in, gitHubUri);
+                return getContent(in, gitHubUri, processWorkDir);
             } case CREATEHOOK: {
                 return createHook(in, gitHubUri);
             }
+            case GETCLIENTSTATS: {
+                return Collections.singletonMap("stats", GitHubClientRegistry.getInstance().stats());
+            }
             default:
                 throw new IllegalArgumentException("Unsupported action type: " + action);
         }
@@ -191,10 +250,8 @@ public class GitHubTask {
 
         log.info("Creating PR in {}/{} from {} to {}", gitHubOrgName, gitHubRepoName, gitHubPRHead, gitHubPRBase);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
             //Create Pull Request
@@ -223,8 +280,7 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         int gitHubPRID = assertInt(in, GITHUB_PRID);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
@@ -246,8 +302,7 @@ public class GitHubTask {
         String gitHubPRComment = assertString(in, GITHUB_PRCOMMENT);
         int gitHubPRID = assertInt(in, GITHUB_PRID);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         IssueService issueService = new IssueService(client);
@@ -273,8 +328,7 @@ public class GitHubTask {
         int gitHubPRID = assertInt(in, GITHUB_PRID);
         String commitMessage = getString(in, GITHUB_MERGECOMMITMSG, "GitHub PR Merge");
         String mergeMethod = getString(in, GITHUB_MERGE_METHOD);
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         try {
@@ -302,8 +356,7 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         int gitHubPRID = assertInt(in, GITHUB_PRID);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         PullRequestService prService = new PullRequestService(client);
@@ -330,9 +383,7 @@ public class GitHubTask {
         String base = assertString(in, GITHUB_MERGEBASE);
         String commitMessage = assertString(in, GITHUB_MERGECOMMITMSG);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        //Connect to GitHub
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         String uri = "/repos" + '/' + repo + "/merges";
@@ -361,17 +412,31 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String gitHubCommitSha = assertString(in, GITHUB_COMMIT_SHA);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         CommitService commitService = new CommitService(client);
 
+        GitHubContentCache cache = GitHubClientRegistry.getInstance().contentCache();
+        String cacheKey = GitHubContentCache.isImmutableRef(gitHubCommitSha) ? GitHubContentCache.key(gitHubUri, gitHubAccessToken, repo.generateId(), "commit", gitHubCommitSha) : null;
+
         try {
             log.info("Getting commit '{}' in {}/{}", gitHubCommitSha, gitHubOrgName, gitHubRepoName);
 
-            RepositoryCommit repositoryCommit = commitService.getCommit(repo, gitHubCommitSha);
-            Map<String, Object> data = new ObjectMapper().convertValue(repositoryCommit, Map.class);
+            Map<String, Object> data;
+            byte[] cached = cacheKey != null ? cache.get(cacheKey) : null;
+            if (cached != null) {
+                log.info("Using the cached commit data");
+                data = objectMapper.readValue(cached, OBJECT_TYPE);
+            } else {
+                RepositoryCommit repositoryCommit = commitService.getCommit(repo, gitHubCommitSha);
+                data = new ObjectMapper().convertValue(repositoryCommit, Map.class);
+                if (cacheKey != null) {
+                    cache.put(cacheKey, objectMapper.writeValueAsBytes(data));
+                }
+            }
+
+            // the default branch can change, it's not cached
 
             RepositoryService repositoryService = new RepositoryService(client);
             Repository repository = repositoryService.getRepository(repo);
@@ -396,10 +461,7 @@ public class GitHubTask {
         String gitHubTaggerEMAIL = assertString(in, GITHUB_TAGGEREMAIL);
         String gitHubBranchSHA = assertString(in, GITHUB_COMMIT_SHA);
 
-        //Initiate the client
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        //Connect to GitHub
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         //Get Required Information to Create Tag.
@@ -450,10 +512,7 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String gitHubTagName = assertString(in, GITHUB_TAGNAME);
 
-        //Initiate the client
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        //Connect to GitHub
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         Tag tag = new Tag();
@@ -479,10 +538,7 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String gitHubBranchName = assertString(in, GITHUB_BRANCH);
 
-        //Initiate the client
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        //Connect to GitHub
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         log.info("Deleting branch '{}' in {}/{}", gitHubBranchName, gitHubOrgName, gitHubRepoName);
@@ -513,8 +569,7 @@ public class GitHubTask {
         log.info("Creating status check ({}) in {}/{} repo with sha '{}'",
                 state, gitHubOrgName, gitHubRepoName, commitSha);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         CommitService commitService = new CommitService(client);
@@ -550,8 +605,7 @@ public class GitHubTask {
         String commitSha = assertString(in, GITHUB_COMMIT_SHA);
 
         ObjectMapper objectMapper = new ObjectMapper();
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
         CommitService commitService = new CommitService(client);
@@ -571,11 +625,9 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String targetOrg = getString(in, GITHUB_FORKTARGETORG);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
             //Fork a Git Repo
@@ -600,27 +652,26 @@ public class GitHubTask {
         String gitHubAccessToken = assertString(in, GITHUB_ACCESSTOKEN);
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
+        GitHubPages.Params page = GitHubPages.Params.from(in);
+        boolean compact = getBoolean(in, GITHUB_COMPACT, page.isPaged());
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
-            //Getting branch list
-            RepositoryService repoService = new RepositoryService(client);
-
-            Map<String, Object> result = Collections.emptyMap();
-
             log.info("Getting branch list from {}/{}...", gitHubOrgName, gitHubRepoName);
-            List<RepositoryBranch> list = repoService.getBranches(repo);
-            if (list != null && !list.isEmpty()) {
-                List<String> branchList = list.stream().map(RepositoryBranch::getName).collect(Collectors.toList());
-                result = Collections.singletonMap("branchList", branchList);
-            }
 
-            return result;
+            List<String> branchList = new ArrayList<>();
+            List<Map<String, Object>> branches = new ArrayList<>();
+            String nextCursor = GitHubPages.<RepositoryBranch>fetch(client, "/repos/" + repo.generateId() + "/branches", null, BRANCH_LIST_TYPE, page, b -> {
+                branchList.add(b.getName());
+                if (compact) {
+                    branches.add(toRefItem(b.getName(), b.getCommit()));
+                }
+            });
+
+            return toListResult("branchList", branchList, "branches", branches, page, compact, nextCursor);
         } catch (Exception e) {
             throw new RuntimeException("Error occured while getting branch list: " + e.getMessage());
         }
@@ -630,27 +681,26 @@ public class GitHubTask {
         String gitHubAccessToken = assertString(in, GITHUB_ACCESSTOKEN);
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
+        GitHubPages.Params page = GitHubPages.Params.from(in);
+        boolean compact = getBoolean(in, GITHUB_COMPACT, page.isPaged());
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
-            //Getting tag list
-            RepositoryService repoService = new RepositoryService(client);
-
-            Map<String, Object> result = Collections.emptyMap();
-
             log.info("Getting tag list from '{}/{}'...", gitHubOrgName, gitHubRepoName);
-            List<RepositoryTag> list = repoService.getTags(repo);
-            if (list != null && !list.isEmpty()) {
-                List<String> tagList = list.stream().map(RepositoryTag::getName).collect(Collectors.toList());
-                result = Collections.singletonMap("tagList", tagList);
-            }
 
-            return result;
+            List<String> tagList = new ArrayList<>();
+            List<Map<String, Object>> tags = new ArrayList<>();
+            String nextCursor = GitHubPages.<RepositoryTag>fetch(client, "/repos/" + repo.generateId() + "/tags", null, TAG_LIST_TYPE, page, t -> {
+                tagList.add(t.getName());
+                if (compact) {
+                    tags.add(toRefItem(t.getName(), t.getCommit()));
+                }
+            });
+
+            return toListResult("tagList", tagList, "tags", tags, page, compact, nextCursor);
         } catch (Exception e) {
             throw new RuntimeException("Error occured while getting tag list: " + e.getMessage());
         }
@@ -662,11 +712,9 @@ public class GitHubTask {
         int gitHubPRNumber = assertInt(in, GITHUB_PRNUMBER);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
             //Get PR
@@ -682,35 +730,63 @@ public class GitHubTask {
         }
     }
 
+    private static Map<String, Object> getPRSnapshot(Map<String, Object> in, String gitHubUri) {
+        String gitHubAccessToken = assertString(in, GITHUB_ACCESSTOKEN);
+        String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
+        String gitHubRepoName = assertString(in, GITHUB_REPONAME);
+        int gitHubPRNumber = assertInt(in, GITHUB_PRNUMBER);
+        Set<String> fields = GitHubPRSnapshot.parseFields(getList(in, GITHUB_FIELDS, null));
+        int commitsLimit = GitHubPRSnapshot.assertLimit(GITHUB_COMMITS_LIMIT, getInt(in, GITHUB_COMMITS_LIMIT, 100));
+        int checksLimit = GitHubPRSnapshot.assertLimit(GITHUB_CHECKS_LIMIT, getInt(in, GITHUB_CHECKS_LIMIT, 50));
+
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
+
+        log.info("Getting PR {} snapshot ({}) from '{}/{}'...", gitHubPRNumber, fields, gitHubOrgName, gitHubRepoName);
+
+        Map<String, Object> request = GitHubPRSnapshot.request(gitHubOrgName, gitHubRepoName, gitHubPRNumber, fields, commitsLimit, checksLimit);
+        try (InputStream response = client.postStream(PooledGitHubClient.GRAPHQL_URI, request)) {
+            return GitHubPRSnapshot.toResult(objectMapper.readValue(response, OBJECT_TYPE), fields);
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while getting PR snapshot: " + e.getMessage());
+        }
+    }
+
     private static Map<String, Object> getPRList(Map<String, Object> in, String gitHubUri) {
         String gitHubAccessToken = assertString(in, GITHUB_ACCESSTOKEN);
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String state = getString(in, GITHUB_PR_STATE, "open").toLowerCase();
+        GitHubPages.Params page = GitHubPages.Params.from(in);
+        boolean compact = getBoolean(in, GITHUB_COMPACT, page.isPaged());
 
         if (!GITHUB_VALID_PR_STATES.contains(state)) {
             throw new IllegalArgumentException("Invalid PR state '" + state +
                     "'. Allowed values are only 'all', 'open', 'closed'.");
         }
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
-            //Getting PR list
-            PullRequestService prService = new PullRequestService(client);
-
             log.info("Getting '{}' PRs from '{}/{}'...", state, gitHubOrgName, gitHubRepoName);
-            List<PullRequest> list = prService.getPullRequests(repo, state);
-            if (list == null) {
-                list = Collections.emptyList();
-            }
 
-            ObjectMapper om = new ObjectMapper();
-            return Collections.singletonMap("prList", om.convertValue(list, Object.class));
+            List<Object> prList = new ArrayList<>();
+            String nextCursor = GitHubPages.<PullRequest>fetch(client, "/repos/" + repo.generateId() + "/pulls",
+                    Collections.singletonMap(GITHUB_PR_STATE, state), PR_LIST_TYPE, page, pr -> {
+                        if (compact) {
+                            prList.add(toPRItem(pr));
+                        } else {
+                            prList.add(objectMapper.convertValue(pr, Object.class));
+                        }
+                    });
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("prList", prList);
+            if (page.isPaged()) {
+                result.put(GitHubPages.NEXT_CURSOR_KEY, nextCursor);
+            }
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Error occurred while getting PR list: " + e.getMessage());
         }
@@ -721,12 +797,11 @@ public class GitHubTask {
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         log.info("Creating repository '{}' in '{}' organization", gitHubRepoName, gitHubOrgName);
 
         try {
-            client.setOAuth2Token(gitHubAccessToken);
 
             RepositoryService repositoryService = new RepositoryService(client);
             Repository repo = getRepository(repositoryService, gitHubOrgName, gitHubRepoName);
@@ -759,12 +834,11 @@ public class GitHubTask {
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         log.info("Deleting repository '{}' from '{}' organization", gitHubRepoName, gitHubOrgName);
 
         try {
-            client.setOAuth2Token(gitHubAccessToken);
 
             RepositoryService repositoryService = new RepositoryService(client);
             Repository repo = getRepository(repositoryService, gitHubOrgName, gitHubRepoName);
@@ -793,11 +867,9 @@ public class GitHubTask {
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String gitHubBranchName = getString(in, GITHUB_BRANCH, "master");
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         try {
-            //Connect to GitHub
-            client.setOAuth2Token(gitHubAccessToken);
             IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
             // get SHA of latest commit
@@ -819,18 +891,46 @@ public class GitHubTask {
         }
     }
 
-    private static Map<String, Object> getContent(Map<String, Object> in, String gitHubUri) {
+    private static Map<String, Object> getContent(Map<String, Object> in, String gitHubUri, Path processWorkDir) {
         String gitHubAccessToken = assertString(in, GITHUB_ACCESSTOKEN);
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
         String gitHubRef = getString(in, GITHUB_REF);
         String gitHubPath = assertString(in, GITHUB_PATH);
+        String saveAs = getString(in, GITHUB_SAVE_AS);
+        String expectedSha = getString(in, GITHUB_SHA);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
 
+        if (saveAs != null) {
+            Path dst = resolveWorkDirPath(processWorkDir, saveAs);
+
+            log.info("Downloading '{}' from {}/{} repo with ref {} to {}", gitHubPath, gitHubOrgName, gitHubRepoName, gitHubRef, saveAs);
+
+            String uri = "/repos/" + repo.generateId() + "/contents/" + gitHubPath;
+            Map<String, String> params = gitHubRef != null ? Collections.singletonMap(GITHUB_REF, gitHubRef) : null;
+            try {
+                Map<String, Object> result = downloadCached(client, uri, params, dst, expectedSha, gitHubUri, gitHubAccessToken, repo, gitHubRef, gitHubPath);
+                result.put(GITHUB_PATH, gitHubPath);
+                result.put(GITHUB_SAVE_AS, saveAs);
+                log.info("Downloaded {} bytes", result.get("size"));
+                return result;
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot get content: " + e.getMessage());
+            }
+        }
+
+        GitHubContentCache cache = GitHubClientRegistry.getInstance().contentCache();
+        String cacheKey = GitHubContentCache.isImmutableRef(gitHubRef) ? GitHubContentCache.key(gitHubUri, gitHubAccessToken, repo.generateId(), "contents", gitHubRef, gitHubPath) : null;
+
         try {
+            byte[] cached = cacheKey != null ? cache.get(cacheKey) : null;
+            if (cached != null) {
+                log.info("Using the cached '{}' file content in {}/{} repo with ref {}", gitHubPath, gitHubOrgName, gitHubRepoName, gitHubRef);
+                return Collections.singletonMap("contents", objectMapper.readValue(cached, LIST_OF_OBJECT_TYPE));
+            }
+
             log.info("Getting '{}' file content in {}/{} repo with ref {}", gitHubPath, gitHubOrgName, gitHubRepoName, gitHubRef);
             ContentsService service = new ContentsService(client);
             List<RepositoryContents> contents = service.getContents(repo, gitHubPath, gitHubRef);
@@ -852,6 +952,10 @@ public class GitHubTask {
                 result.add(item);
             }
 
+            if (cacheKey != null) {
+                cache.put(cacheKey, objectMapper.writeValueAsBytes(result));
+            }
+
             return Collections.singletonMap("contents", result);
         } catch (IOException e) {
             throw new RuntimeException("Cannot get content: " + e.getMessage());
@@ -863,8 +967,7 @@ public class GitHubTask {
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         RepositoryService service = new RepositoryService(client);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
@@ -899,8 +1002,7 @@ public class GitHubTask {
         String gitHubOrgName = assertString(in, GITHUB_ORGNAME);
         String gitHubRepoName = assertString(in, GITHUB_REPONAME);
 
-        GitHubClient client = GitHubClient.createClient(gitHubUri);
-        client.setOAuth2Token(gitHubAccessToken);
+        GitHubClient client = createClient(gitHubUri, gitHubAccessToken);
 
         IssueService issueService = new IssueService(client);
         IRepositoryIdProvider repo = RepositoryId.create(gitHubOrgName, gitHubRepoName);
@@ -924,6 +1026,111 @@ public class GitHubTask {
         }
     }
 
+    private static Map<String, Object> toListResult(String namesKey, List<String> names, String itemsKey, List<Map<String, Object>> items,
+                                                    GitHubPages.Params page, boolean compact, String nextCursor) {
+
+        if (!page.isPaged() && !compact) {
+            // backward compatibility
+            return names.isEmpty() ? Collections.emptyMap() : Collections.singletonMap(namesKey, names);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put(namesKey, names);
+        if (compact) {
+            result.put(itemsKey, items);
+        }
+        if (page.isPaged()) {
+            result.put(GitHubPages.NEXT_CURSOR_KEY, nextCursor);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toRefItem(String name, TypedResource commit) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", name);
+        m.put("sha", commit != null ? commit.getSha() : null);
+        return m;
+    }
+
+    private static Map<String, Object> toPRItem(PullRequest pr) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("number", pr.getNumber());
+        m.put("state", pr.getState());
+        m.put("title", pr.getTitle());
+        m.put("sha", pr.getHead() != null ? pr.getHead().getSha() : null);
+        m.put("head", pr.getHead() != null ? pr.getHead().getRef() : null);
+        m.put("base", pr.getBase() != null ? pr.getBase().getRef() : null);
+        return m;
+    }
+
+    private static Path resolveWorkDirPath(Path processWorkDir, String path) {
+        if (processWorkDir == null) {
+            throw new IllegalArgumentException("'" + GITHUB_SAVE_AS + "' requires the process' working directory");
+        }
+
+        Path workDir = processWorkDir.toAbsolutePath().normalize();
+        Path result = workDir.resolve(path).normalize();
+        if (!result.startsWith(workDir) || result.equals(workDir)) {
+            throw new IllegalArgumentException("Invalid '" + GITHUB_SAVE_AS + "' value: '" + path + "'. Expected a file path relative to the process' working directory");
+        }
+        return result;
+    }
+
+    /**
+     * Downloads the file using the content cache. The files are cached by the commit SHA and the path
+     * (if {@code ref} is a SHA) and by the blob SHA (if {@code expectedSha} is specified).
+     */
+    private static Map<String, Object> downloadCached(GitHubClient client, String uri, Map<String, String> params,
+                                                      Path dst, String expectedSha, String gitHubUri, String token,
+                                                      IRepositoryIdProvider repo, String ref, String path) throws IOException {
+
+        GitHubContentCache cache = GitHubClientRegistry.getInstance().contentCache();
+        if (!cache.isEnabled()) {
+            return new HashMap<>(GitHubFileDownload.download(client, uri, params, dst, expectedSha));
+        }
+
+        String blobKey = expectedSha != null ? GitHubContentCache.key(gitHubUri, token, repo.generateId(), "blob", expectedSha.trim().toLowerCase()) : null;
+        String pathKey = GitHubContentCache.isImmutableRef(ref) ? GitHubContentCache.key(gitHubUri, token, repo.generateId(), "raw", ref, path) : null;
+
+        for (String key : Arrays.asList(blobKey, pathKey)) {
+            if (key != null && cache.copyTo(key, dst)) {
+                log.info("Using the cached file content");
+
+                long size = Files.size(dst);
+                Map<String, Object> result = new HashMap<>();
+                result.put("size", size);
+                if (expectedSha != null) {
+                    // the blob SHA of a file cached by its path is unknown until it's checked
+                    String sha = GitHubFileDownload.blobSha(dst, size);
+                    if (sha.equalsIgnoreCase(expectedSha.trim())) {
+                        result.put("sha", sha);
+                        return result;
+                    }
+                    continue;
+                }
+                return result;
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>(GitHubFileDownload.download(client, uri, params, dst, expectedSha));
+        if (blobKey != null) {
+            cache.put(blobKey, dst);
+        }
+        if (pathKey != null) {
+            cache.put(pathKey, dst);
+        }
+        return result;
+    }
+
+    private static GitHubClient createClient(String gitHubUri, String gitHubAccessToken) {
+        GitHubClientRegistry registry = GitHubClientRegistry.getInstance();
+        GitHubClient client = registry.get(gitHubUri, gitHubAccessToken);
+        if (log.isDebugEnabled()) {
+            log.debug("GitHub client stats: {}", registry.stats());
+        }
+        return client;
+    }
+
     private static Repository getRepository(RepositoryService repositoryService, String githubOrgName,
                                             String gitHubRepoName) throws Exception {
         Repository repository = null;
@@ -944,12 +1151,7 @@ public class GitHubTask {
     }
 
     private static Action getAction(Map<String, Object> in) {
-        String v = MapUtils.assertString(in, ACTION_KEY);
-        try {
-            return Action.valueOf(v.trim().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Unknown action: '" + v + "'. Available actions: " + Arrays.toString(Action.values()));
-        }
+        return Action.parse(MapUtils.assertString(in, ACTION_KEY));
     }
 
     private static String assertStatusState(Map<String, Object> in) {
@@ -986,10 +1188,21 @@ public class GitHubTask {
         GETBRANCHLIST,
         GETPR,
         GETPRLIST,
+        GETPRSNAPSHOT,
         GETTAGLIST,
         GETLATESTSHA,
         CREATEREPO,
         DELETEREPO,
-        GETCONTENT
+        GETCONTENT,
+        GETCLIENTSTATS,
+        BATCH;
+
+        public static Action parse(String v) {
+            try {
+                return Action.valueOf(v.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown action: '" + v + "'. Available actions: " + Arrays.toString(Action.values()));
+            }
+        }
     }
 }
@@ -0,0 +1,342 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.sdk.Secret;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Node-local cache of bare repository mirrors, keyed by the repository URL.
+ * <p>
+ * Each mirror is updated incrementally before use and is protected by a lock file,
+ * so several processes running on the same agent can share the cache.
+ * When the total size of the cache exceeds the configured limit the least recently
+ * used mirrors are removed.
+ */
+public class GitMirrorCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GitMirrorCache.class);
+
+    private static final String MIRROR_SUFFIX = ".git";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final byte[] DELETED_MARKER = {'x'};
+    private static final String[] MIRROR_REFSPECS = {"+refs/heads/*:refs/heads/*", "+refs/tags/*:refs/tags/*"};
+
+    /**
+     * {@link FileChannel#lock()} is held on behalf of the whole JVM,
+     * so threads of the same process must be serialized separately.
+     */
+    private static final Map<Path, ReentrantLock> localLocks = new ConcurrentHashMap<>();
+
+    private final Path cacheDir;
+    private final long maxSizeBytes;
+
+    public GitMirrorCache(Path cacheDir, long maxSizeBytes) {
+        this.cacheDir = cacheDir;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Updates the mirror of the specified repository and calls the callback with the path
+     * of the mirror. The mirror is locked until the callback returns.
+     */
+    public <T> T withMirror(String uri, Secret secret, MirrorCallback<T> callback) throws Exception {
+        Files.createDirectories(cacheDir);
+
+        String key = key(uri);
+        Path mirrorDir = cacheDir.resolve(key + MIRROR_SUFFIX);
+        Path lockFile = cacheDir.resolve(key + LOCK_SUFFIX);
+
+        T result;
+        try (MirrorLock ignored = MirrorLock.acquire(lockFile)) {
+            update(uri, secret, mirrorDir);
+            Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+            result = callback.call(mirrorDir);
+        }
+
+        evict(key);
+
+        return result;
+    }
+
+    private static void update(String uri, Secret secret, Path mirrorDir) throws Exception {
+        if (!Files.exists(mirrorDir)) {
+            log.info("Creating a mirror of {} in {}...", uri, mirrorDir);
+            try (Git git = Git.init().setBare(true).setDirectory(mirrorDir.toFile()).call()) {
+                StoredConfig config = git.getRepository().getConfig();
+                config.setString("remote", "origin", "url", uri);
+                config.setStringList("remote", "origin", "fetch", Arrays.asList(MIRROR_REFSPECS));
+                config.save();
+            }
+        } else {
+            log.info("Updating the mirror of {} in {}...", uri, mirrorDir);
+        }
+
+        try (Git git = Git.open(mirrorDir.toFile())) {
+            // allow partial clones from the mirror
+            StoredConfig config = git.getRepository().getConfig();
+            if (!config.getBoolean("uploadpack", "allowFilter", false)) {
+                config.setBoolean("uploadpack", null, "allowFilter", true);
+                config.save();
+            }
+
+            git.fetch()
+                    .setRemote("origin")
+                    .setRemoveDeletedRefs(true)
+                    .setTransportConfigCallback(JGitClient.createTransportConfigCallback(secret))
+                    .call();
+        } catch (Exception e) {
+            // a mirror without any refs is useless, don't leave it around
+            if (isEmpty(mirrorDir)) {
+                deleteQuietly(mirrorDir);
+            }
+            throw e;
+        }
+    }
+
+    private void evict(String currentKey) {
+        List<Path> mirrors;
+        try (Stream<Path> s = Files.list(cacheDir)) {
+            mirrors = s.filter(p -> p.getFileName().toString().endsWith(MIRROR_SUFFIX))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("evict -> can't list the mirror cache directory {}: {}", cacheDir, e.getMessage());
+            return;
+        }
+
+        Map<Path, Long> sizes = new HashMap<>();
+        long totalSize = 0;
+        for (Path m : mirrors) {
+            long size = sizeOf(m);
+            sizes.put(m, size);
+            totalSize += size;
+        }
+
+        if (totalSize <= maxSizeBytes) {
+            return;
+        }
+
+        // least recently used first
+        mirrors.sort(Comparator.comparingLong(this::lastUsed));
+
+        for (Path m : mirrors) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+
+            String key = keyOf(m);
+            if (key.equals(currentKey)) {
+                continue;
+            }
+
+            try (MirrorLock lock = MirrorLock.tryAcquire(cacheDir.resolve(key + LOCK_SUFFIX))) {
+                if (lock == null) {
+                    // in use by someone else
+                    continue;
+                }
+
+                log.info("evict -> removing {} ({} bytes)", m, sizes.get(m));
+                IOUtils.deleteRecursively(m);
+                lock.delete();
+                totalSize -= sizes.get(m);
+            } catch (IOException e) {
+                log.warn("evict -> can't remove {}: {}", m, e.getMessage());
+            }
+        }
+    }
+
+    private long lastUsed(Path mirrorDir) {
+        Path lockFile = cacheDir.resolve(keyOf(mirrorDir) + LOCK_SUFFIX);
+        try {
+            return Files.getLastModifiedTime(lockFile).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String keyOf(Path mirrorDir) {
+        String n = mirrorDir.getFileName().toString();
+        return n.substring(0, n.length() - MIRROR_SUFFIX.length());
+    }
+
+    private static String key(String uri) {
+        String normalized = uri.trim();
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.endsWith(MIRROR_SUFFIX)) {
+            normalized = normalized.substring(0, normalized.length() - MIRROR_SUFFIX.length());
+        }
+
+        return Utils.sha256Hex(normalized).substring(0, 32);
+    }
+
+    private static long sizeOf(Path dir) {
+        try (Stream<Path> s = Files.walk(dir)) {
+            return s.filter(Files::isRegularFile)
+                    .mapToLong(p -> {
+                        try {
+                            return Files.size(p);
+                        } catch (IOException e) {
+                            return 0;
+                        }
+                    })
+                    .sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isEmpty(Path mirrorDir) {
+        try (Git git = Git.open(mirrorDir.toFile())) {
+            return git.getRepository().getRefDatabase().getRefs().isEmpty();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            IOUtils.deleteRecursively(p);
+        } catch (IOException e) {
+            log.warn("deleteQuietly -> can't remove {}: {}", p, e.getMessage());
+        }
+    }
+
+    public interface MirrorCallback<T> {
+
+        T call(Path mirrorDir) throws Exception;
+    }
+
+    /**
+     * The lock file of an evicted mirror is marked as deleted (non-empty) before it is removed,
+     * the waiters that acquire a deleted lock file or a removed local lock start over.
+     */
+    private static final class MirrorLock implements AutoCloseable {
+
+        static MirrorLock acquire(Path lockFile) throws IOException {
+            return lock(lockFile, true);
+        }
+
+        /**
+         * @return {@code null} if the lock is held by someone else.
+         */
+        static MirrorLock tryAcquire(Path lockFile) throws IOException {
+            return lock(lockFile, false);
+        }
+
+        private static MirrorLock lock(Path lockFile, boolean wait) throws IOException {
+            Path key = lockFile.toAbsolutePath();
+            while (true) {
+                ReentrantLock localLock = localLocks.computeIfAbsent(key, k -> new ReentrantLock());
+                if (wait) {
+                    localLock.lock();
+                } else if (!localLock.tryLock()) {
+                    return null;
+                }
+
+                if (localLocks.get(key) != localLock) {
+                    // removed by evict in the meantime
+                    localLock.unlock();
+                    continue;
+                }
+
+                FileChannel channel = null;
+                try {
+                    channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock fileLock = wait ? channel.lock() : channel.tryLock();
+                    if (fileLock == null) {
+                        channel.close();
+                        localLock.unlock();
+                        return null;
+                    }
+
+                    if (channel.size() > 0) {
+                        // deleted by evict in another process in the meantime
+                        fileLock.release();
+                        channel.close();
+                        localLock.unlock();
+                        continue;
+                    }
+
+                    return new MirrorLock(lockFile, key, localLock, channel, fileLock);
+                } catch (IOException | RuntimeException e) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                    localLock.unlock();
+                    throw e;
+                }
+            }
+        }
+
+        private final Path lockFile;
+        private final Path key;
+        private final ReentrantLock localLock;
+        private final FileChannel channel;
+        private final FileLock fileLock;
+
+        private MirrorLock(Path lockFile, Path key, ReentrantLock localLock, FileChannel channel, FileLock fileLock) {
+            this.lockFile = lockFile;
+            this.key = key;
+            this.localLock = localLock;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        /**
+         * Removes the lock file and the local lock, the lock must be closed afterwards.
+         */
+        void delete() throws IOException {
+            channel.write(ByteBuffer.wrap(DELETED_MARKER));
+            Files.deleteIfExists(lockFile);
+            localLocks.remove(key, localLock);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                fileLock.release();
+                channel.close();
+            } finally {
+                localLock.unlock();
+            }
+        }
+    }
+}
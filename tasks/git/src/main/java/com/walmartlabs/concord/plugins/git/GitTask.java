@@ -27,10 +27,12 @@ import com.walmartlabs.concord.sdk.MapUtils;
 import com.walmartlabs.concord.sdk.Secret;
 import org.eclipse.jgit.api.*;
 import org.eclipse.jgit.api.MergeResult.MergeStatus;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.lib.UserConfig;
 import org.eclipse.jgit.transport.PushResult;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
@@ -44,14 +46,15 @@ import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static com.walmartlabs.concord.plugins.git.Utils.getBoolean;
-import static com.walmartlabs.concord.plugins.git.Utils.hideSensitiveData;
 import static com.walmartlabs.concord.sdk.MapUtils.assertString;
 import static com.walmartlabs.concord.sdk.MapUtils.getString;
 import static org.eclipse.jgit.lib.Constants.R_HEADS;
 import static org.eclipse.jgit.lib.Constants.R_REMOTES;
+import static org.eclipse.jgit.lib.Constants.R_TAGS;
 
 public class GitTask {
 
@@ -70,9 +73,17 @@ public class GitTask {
     public static final String GIT_INIT_BRANCH = "initBranch";
     public static final String GIT_NEW_BRANCH_NAME = "newBranch";
     public static final String GIT_PASSWORD = "password";
+    public static final String GIT_PATHS = "paths";
     public static final String GIT_PRIVATE_KEY = "privateKey";
     public static final String GIT_PUSH_CHANGES_TO_ORIGIN = "pushChanges";
+    public static final String GIT_REFS = "refs";
+    public static final String GIT_REF_SPECS = "refSpecs";
+    public static final String GIT_TAGS = "tags";
+    public static final String GIT_ATOMIC = "atomic";
+    public static final String GIT_FORCE = "force";
+    public static final String GIT_CACHE_TTL = "cacheTtl";
     public static final String GIT_PUSH_NEW_BRANCH_TO_ORIGIN = "pushBranch";
+    public static final String GIT_REUSE_EXISTING = "reuseExisting";
     public static final String GIT_SOURCE_BRANCH = "sourceBranch";
     public static final String GIT_TOKEN = "token";
     public static final String GIT_URL = "url";
@@ -88,6 +99,7 @@ public class GitTask {
     public static final String HEAD_SHA = "headSHA";
 
     private static final String DEFAULT_REMOTE = "origin";
+    private static final int DEFAULT_LS_REMOTE_CACHE_TTL = 30;
 
     private final GitSecretService secretService;
     private final Path processWorkDir;
@@ -122,6 +134,15 @@ public class GitTask {
             case PULL: {
                 return doPull(in);
             }
+            case FETCH: {
+                return doFetch(in);
+            }
+            case LSREMOTE: {
+                return doLsRemote(in);
+            }
+            case PUSH: {
+                return doPush(in);
+            }
             default:
                 throw new IllegalArgumentException("Unsupported action type: " + action);
         }
@@ -157,25 +178,147 @@ public class GitTask {
     private Map<String, Object> doClone(Map<String, Object> in) throws Exception {
         String uri = assertString(in, GIT_URL);
         String baseBranch = getString(in, GIT_BASE_BRANCH, "master");
+        boolean reuseExisting = getBoolean(in, GIT_REUSE_EXISTING, false);
         String dst = getDest(in);
         Path dstDir = processWorkDir.resolve(dst);
-        if (Files.exists(dstDir)) {
+        if (Files.exists(dstDir) && !(reuseExisting && RepoUpdater.isRepo(dstDir))) {
             throw new IllegalStateException("Destination directory '" + dst + "' already exists");
         }
 
         Secret secret = getSecret(in);
 
-        GitClient client = GitClientFactory.create(in);
+        // never remove an existing clone on errors
+        Path cleanupDir = reuseExisting && RepoUpdater.isRepo(dstDir) ? null : dstDir;
 
-        log.info("Cloning {} to {}...", uri, dstDir);
         try {
-            client.cloneRepo(uri, baseBranch, secret, dstDir);
+            cloneOrUpdate(in, uri, baseBranch, secret, dstDir, reuseExisting);
             return toResult(true, ResultStatus.SUCCESS, "", Collections.emptySet(), getHeadSHA(dstDir));
         } catch (Exception e) {
-            return handleError("Error while cloning the repository", e, in, dstDir, secret);
+            return handleError("Error while cloning the repository", e, in, cleanupDir, secret);
         }
     }
 
+    private Map<String, Object> doFetch(Map<String, Object> in) throws Exception {
+        String uri = assertString(in, GIT_URL);
+        String baseRef = getString(in, GIT_BASE_REF, getString(in, GIT_BASE_BRANCH, "master"));
+        Path dstDir = processWorkDir.resolve(getDest(in));
+
+        Secret secret = getSecret(in);
+
+        // never remove an existing clone on errors
+        Path cleanupDir = RepoUpdater.isRepo(dstDir) ? null : dstDir;
+
+        try {
+            cloneOrUpdate(in, uri, baseRef, secret, dstDir, true);
+            return toResult(true, ResultStatus.SUCCESS, "", Collections.emptySet(), getHeadSHA(dstDir));
+        } catch (Exception e) {
+            return handleError("Error while updating the repository", e, in, cleanupDir, secret);
+        }
+    }
+
+    private Map<String, Object> doLsRemote(Map<String, Object> in) throws Exception {
+        String uri = assertString(in, GIT_URL);
+        List<String> names = MapUtils.getList(in, GIT_REFS, null);
+        int cacheTtl = MapUtils.getInt(in, GIT_CACHE_TTL, DEFAULT_LS_REMOTE_CACHE_TTL);
+        if (cacheTtl < 0) {
+            throw new IllegalArgumentException("Invalid '" + GIT_CACHE_TTL + "' value: " + cacheTtl + ". Expected a positive number of seconds");
+        }
+
+        Secret secret = getSecret(in);
+
+        try {
+            Map<String, String> remoteRefs = LsRemote.list(uri, secret, TimeUnit.SECONDS.toMillis(cacheTtl));
+
+            Map<String, Object> refs = new HashMap<>();
+            if (names == null) {
+                refs.putAll(remoteRefs);
+            } else {
+                for (String n : names) {
+                    refs.put(n, LsRemote.resolve(remoteRefs, n));
+                }
+            }
+
+            Map<String, Object> result = toResult(true, ResultStatus.SUCCESS, "", Collections.emptySet(), remoteRefs.get(Constants.HEAD));
+            result.put(GIT_REFS, refs);
+            return result;
+        } catch (Exception e) {
+            return handleError("Error while listing the remote refs", e, in, null, secret);
+        }
+    }
+
+    private Map<String, Object> doPush(Map<String, Object> in) throws Exception {
+        Path dstDir = prepareTargetDirectory(in);
+        List<String> refSpecs = MapUtils.getList(in, GIT_REF_SPECS, Collections.emptyList());
+        List<String> tags = MapUtils.getList(in, GIT_TAGS, Collections.emptyList());
+        boolean atomic = getBoolean(in, GIT_ATOMIC, false);
+        boolean force = getBoolean(in, GIT_FORCE, false);
+        boolean ignoreErrors = isIgnoreErrors(in);
+
+        if (refSpecs.isEmpty() && tags.isEmpty()) {
+            throw new IllegalArgumentException("'" + GIT_REF_SPECS + "' or '" + GIT_TAGS + "' is required");
+        }
+
+        List<RefSpec> specs = new ArrayList<>(refSpecs.size() + tags.size());
+        for (String s : refSpecs) {
+            specs.add(new RefSpec(s));
+        }
+        for (String t : tags) {
+            specs.add(new RefSpec(R_TAGS + t));
+        }
+
+        Secret secret = getSecret(in);
+
+        Map<String, Object> refs = new HashMap<>();
+        List<String> failed = new ArrayList<>();
+
+        try (Git git = Git.open(dstDir.toFile())) {
+            log.info("Pushing {} ref(s) to '{}'...", specs.size(), DEFAULT_REMOTE);
+
+            // all refs are sent in one connection with a single pack
+            Iterable<PushResult> results = git.push()
+                    .setTransportConfigCallback(JGitClient.createTransportConfigCallback(secret))
+                    .setRemote(DEFAULT_REMOTE)
+                    .setRefSpecs(specs)
+                    .setThin(true)
+                    .setAtomic(atomic)
+                    .setForce(force)
+                    .call();
+
+            for (PushResult r : results) {
+                for (RemoteRefUpdate u : r.getRemoteUpdates()) {
+                    Status pushStatus = u.getStatus();
+                    boolean ok = pushStatus == Status.OK || pushStatus == Status.UP_TO_DATE;
+                    if (!ok) {
+                        failed.add(u.getRemoteName() + " (" + pushStatus + ")");
+                    }
+
+                    Map<String, Object> m = new HashMap<>();
+                    m.put(OK_KEY, ok);
+                    m.put(STATUS_KEY, pushStatus.name());
+                    m.put("message", u.getMessage());
+                    refs.put(u.getRemoteName(), m);
+
+                    log.info("{}: {}{}", u.getRemoteName(), pushStatus, u.getMessage() != null ? " (" + u.getMessage() + ")" : "");
+                }
+            }
+        } catch (Exception e) {
+            return handleError("Error while pushing the changes", e, in, null, secret);
+        }
+
+        Map<String, Object> result;
+        if (failed.isEmpty()) {
+            result = toResult(true, ResultStatus.SUCCESS, "", Collections.emptySet(), getHeadSHA(dstDir));
+        } else {
+            String error = "Git push action failed for: " + String.join(", ", failed);
+            if (!ignoreErrors) {
+                throw new IllegalArgumentException(error);
+            }
+            result = toResult(false, ResultStatus.FAILURE, error, Collections.emptySet(), getHeadSHA(dstDir));
+        }
+        result.put(GIT_REFS, refs);
+        return result;
+    }
+
     private Map<String, Object> doPull(Map<String, Object> in) throws Exception {
         Path dstDir = prepareTargetDirectory(in);
         String remoteBranch = assertString(in, GIT_PULL_REMOTE_BRANCH);
@@ -187,6 +330,11 @@ public class GitTask {
         String remote = DEFAULT_REMOTE;
 
         try (Git git = Git.open(dstDir.toFile())) {
+            if (GitCli.isPartial(dstDir)) {
+                pullCli(git.getRepository(), dstDir, remote, remoteBranch, secret);
+                return Collections.emptyMap();
+            }
+
             PullCommand pullCommand = git.pull();
             log.info("Pulling changes from remote '{}/{}'...", remote, remoteBranch);
             PullResult result = pullCommand.setRemote(remote)
@@ -219,6 +367,8 @@ public class GitTask {
                         break;
                     }
                 }
+
+                reapplySparseCheckout(dstDir, secret);
             } else {
                 switch (mergeStatus) {
                     case ABORTED:
@@ -250,22 +400,21 @@ public class GitTask {
         String committerEmail = assertString(in, GIT_COMMITTER_EMAIL);
         boolean pushChangesToOrigin = getBoolean(in, GIT_PUSH_CHANGES_TO_ORIGIN, false);
         boolean allowEmptyCommit = getBoolean(in, GIT_ALLOW_EMPTY_COMMIT, false);
+        List<String> paths = MapUtils.getList(in, GIT_PATHS, null);
         Secret secret = getSecret(in);
         boolean ignoreErrors = isIgnoreErrors(in);
         TransportConfigCallback transportCallback = JGitClient.createTransportConfigCallback(secret);
 
         try (Git git = Git.open(dstDir.toFile())) {
             log.info("Scanning folder for changes.");
-            git.add().addFilepattern(".").call();
-            git.add().setUpdate(true).addFilepattern(".").call();
-            org.eclipse.jgit.api.Status status = git.status().call();
-            if (status.getUncommittedChanges().isEmpty() && !allowEmptyCommit) {
+            Set<String> changes = WorkTreeStager.stage(git.getRepository(), paths);
+            if (changes.isEmpty() && !allowEmptyCommit) {
                 log.warn("No changes detected on your local git repo.Skipping git commit and git push actions.");
                 return toResult(true, ResultStatus.NO_CHANGES, "", Collections.emptySet(), getHeadSHA(dstDir));
             }
 
             Map<String, Object> commitResult;
-            log.info("Changes detected in the following files: {}", status.getUncommittedChanges());
+            log.info("Changes detected in the following files: {}", changes);
             CommitCommand commitCommand = git.commit()
                     .setSign(false)
                     .setAllowEmpty(allowEmptyCommit)
@@ -274,10 +423,10 @@ public class GitTask {
             try {
                 commitCommand.call();
                 log.info("Committer userid and email are '{}', '{}'", committerUId, committerEmail);
-                commitResult = toResult(true, ResultStatus.SUCCESS, "", status.getUncommittedChanges(), getHeadSHA(dstDir));
+                commitResult = toResult(true, ResultStatus.SUCCESS, "", changes, getHeadSHA(dstDir));
             } catch (Exception e) {
                 String error = "Problem committing changes.\n" + e.getMessage();
-                return handleError(error, e, in, null, secret, status.getUncommittedChanges(), () -> getHeadSHA(dstDir));
+                return handleError(error, e, in, null, secret, changes, () -> getHeadSHA(dstDir));
             }
 
             if (!pushChangesToOrigin) {
@@ -316,7 +465,7 @@ public class GitTask {
                             throw new IllegalArgumentException(error);
                         }
 
-                        return toResult(false, ResultStatus.FAILURE, error, status.getUncommittedChanges(), getHeadSHA(dstDir));
+                        return toResult(false, ResultStatus.FAILURE, error, changes, getHeadSHA(dstDir));
                     }
                     case REJECTED_NONFASTFORWARD: {
                         String error = "failed to push some refs to origin'\n" +
@@ -328,7 +477,7 @@ public class GitTask {
                             throw new IllegalArgumentException(error);
                         }
 
-                        return toResult(false, ResultStatus.FAILURE, error, status.getUncommittedChanges(), getHeadSHA(dstDir));
+                        return toResult(false, ResultStatus.FAILURE, error, changes, getHeadSHA(dstDir));
                     }
                     case UP_TO_DATE: {
                         String error = "Everything up-to-date. Nothing to push to origin. Status Code:" + pushStatus;
@@ -336,11 +485,11 @@ public class GitTask {
                             throw new IllegalArgumentException(error);
                         }
 
-                        return toResult(false, ResultStatus.FAILURE, error, status.getUncommittedChanges(), getHeadSHA(dstDir));
+                        return toResult(false, ResultStatus.FAILURE, error, changes, getHeadSHA(dstDir));
                     }
                     case OK: {
                         log.info("Successfully pushed the changes to origin");
-                        return toResult(true, ResultStatus.SUCCESS, "", status.getUncommittedChanges(), getHeadSHA(dstDir));
+                        return toResult(true, ResultStatus.SUCCESS, "", changes, getHeadSHA(dstDir));
                     }
                 }
             }
@@ -360,20 +509,26 @@ public class GitTask {
         //New Branch variables
         String newBranchName = assertString(in, GIT_NEW_BRANCH_NAME);
         boolean pushNewBranchToOrigin = getBoolean(in, GIT_PUSH_NEW_BRANCH_TO_ORIGIN, false);
+        boolean reuseExisting = getBoolean(in, GIT_REUSE_EXISTING, false);
 
         Path dstDir = prepareTargetDirectory(in);
 
-        log.info("Cloning {} to {}...", uri, dstDir);
-
         Secret secret = getSecret(in);
-        GitClient client = GitClientFactory.create(in);
+
+        // never remove an existing clone on errors
+        Path cleanupDir = reuseExisting && RepoUpdater.isRepo(dstDir) ? null : dstDir;
+
         try {
-            client.cloneRepo(uri, baseRef, secret, dstDir);
+            cloneOrUpdate(in, uri, baseRef, secret, dstDir, reuseExisting);
         } catch (Exception e) {
-            return handleError("Error while cloning the repository", e, in, dstDir, secret);
+            return handleError("Error while cloning the repository", e, in, cleanupDir, secret);
         }
 
         try (Git git = Git.open(dstDir.toFile())) {
+            if (reuseExisting && git.getRepository().exactRef(R_HEADS + newBranchName) != null) {
+                // created by a previous step, start over from the base ref
+                git.branchDelete().setBranchNames(newBranchName).setForce(true).call();
+            }
             git.checkout().setCreateBranch(true).setName(newBranchName).call();
             log.info("Created new branch '{}' from '{}'", newBranchName, getHeadSHA(dstDir));
             //Push created Branch to remote Origin on user input
@@ -391,7 +546,7 @@ public class GitTask {
             }
             return toResult(true, ResultStatus.SUCCESS, "", Collections.emptySet(), getHeadSHA(dstDir));
         } catch (Exception e) {
-            return handleError("Error while creating the branch", e, in, dstDir, secret);
+            return handleError("Error while creating the branch", e, in, cleanupDir, secret);
         }
     }
 
@@ -399,17 +554,19 @@ public class GitTask {
         String uri = assertString(in, GIT_URL);
         String sourceBranch = assertString(in, GIT_SOURCE_BRANCH);
         String destinationBranch = assertString(in, GIT_DESTINATION_BRANCH);
-        Path dstDir = prepareTargetDirectory(in);
+        boolean reuseExisting = getBoolean(in, GIT_REUSE_EXISTING, false);
 
-        log.info("Cloning {} to {}...", uri, dstDir);
+        Path dstDir = prepareTargetDirectory(in);
 
         Secret secret = getSecret(in);
 
-        GitClient client = GitClientFactory.create(in);
+        // never remove an existing clone on errors
+        Path cleanupDir = reuseExisting && RepoUpdater.isRepo(dstDir) ? null : dstDir;
+
         try {
-            client.cloneRepo(uri, destinationBranch, secret, dstDir);
+            cloneOrUpdate(in, uri, destinationBranch, secret, dstDir, reuseExisting);
         } catch (Exception e) {
-            return handleError("Error while cloning the repository", e, in, dstDir, secret);
+            return handleError("Error while cloning the repository", e, in, cleanupDir, secret);
         }
 
         try (Git git = Git.open(dstDir.toFile())) {
@@ -417,20 +574,30 @@ public class GitTask {
             String sourceBranch_ref = REFS_REMOTES.concat(sourceBranch);
             Repository repo = git.getRepository();
 
-            MergeCommand cmd = git.merge();
-            cmd.include(repo.findRef(sourceBranch_ref)); //Get Reference of From Branch
-            MergeResult res = cmd.call();
+            MergeResult.MergeStatus mergeStatus;
+            String headSHA;
+            if (GitCli.isPartial(dstDir)) {
+                GitCli cli = new GitCli(secret);
+                mergeStatus = mergeCli(cli, repo, dstDir, sourceBranch_ref);
+                headSHA = revParse(cli, dstDir, Constants.HEAD);
+            } else {
+                MergeCommand cmd = git.merge();
+                cmd.include(repo.findRef(sourceBranch_ref)); //Get Reference of From Branch
+                MergeResult res = cmd.call();
 
-            String headSHA = res.getNewHead().name();
+                headSHA = res.getNewHead().name();
+                mergeStatus = res.getMergeStatus();
 
-            MergeResult.MergeStatus mergeStatus = res.getMergeStatus();
-            switch (mergeStatus) {
-                //Throw Exception if there are conflicts when merging
-                case CONFLICTING: {
+                if (mergeStatus == MergeStatus.CONFLICTING) {
                     repo.writeMergeCommitMsg(null);
                     repo.writeMergeHeads(null);
                     Git.wrap(repo).reset().setMode(ResetCommand.ResetType.HARD).call();
+                }
+            }
 
+            switch (mergeStatus) {
+                //Throw Exception if there are conflicts when merging
+                case CONFLICTING: {
                     String error = "Automatic merge failed and aborted because of conflicts. Fix the conflicts and commit the result before merging";
                     if (!isIgnoreErrors(in)) {
                         throw new IllegalAccessException(error);
@@ -444,6 +611,8 @@ public class GitTask {
                 }
                 default: {
                     log.info("Merged '{}' with '{}'", sourceBranch, destinationBranch);
+                    reapplySparseCheckout(dstDir, secret);
+
                     //Push to Origin
                     TransportConfigCallback transportCallback = JGitClient.createTransportConfigCallback(secret);
 
@@ -457,7 +626,93 @@ public class GitTask {
                 }
             }
         } catch (Exception e) {
-            return handleError("Error while merging a repository", e, in, dstDir, secret);
+            return handleError("Error while merging a repository", e, in, cleanupDir, secret);
+        }
+    }
+
+    /**
+     * Clones the repository or, if {@code reuseExisting} is set and the destination is already
+     * a clone of the same repository, fetches the new objects and resets it to the specified ref.
+     */
+    private static void cloneOrUpdate(Map<String, Object> in, String uri, String ref, Secret secret,
+                                      Path dstDir, boolean reuseExisting) throws Exception {
+
+        if (reuseExisting && RepoUpdater.isRepo(dstDir)) {
+            log.info("Updating the existing clone of {} in {}...", uri, dstDir);
+            RepoUpdater.update(uri, ref, secret, dstDir);
+            return;
+        }
+
+        log.info("Cloning {} to {}...", uri, dstDir);
+        GitClientFactory.create(in).cloneRepo(uri, ref, secret, dstDir);
+    }
+
+    /**
+     * JGit can't fetch the objects left out of a partial clone on demand, merges fail with
+     * a {@link org.eclipse.jgit.errors.MissingObjectException} on the first missing blob or tree.
+     * The git CLI fetches them from the promisor remote.
+     */
+    private static void pullCli(Repository repo, Path dstDir, String remote, String remoteBranch, Secret secret) {
+        GitCli cli = new GitCli(secret);
+        String head = revParse(cli, dstDir, Constants.HEAD);
+
+        log.info("Pulling changes from remote '{}/{}'...", remote, remoteBranch);
+        cli.exec(dstDir, withCommitter(repo, "pull", "--no-rebase", "--no-edit", remote, remoteBranch));
+
+        if (head.equals(revParse(cli, dstDir, Constants.HEAD))) {
+            log.info("Everything up-to-date. Nothing to pull from remote '{}/{}'.", remote, remoteBranch);
+        } else {
+            log.info("Pulled changes from remote '{}/{}'.", remote, remoteBranch);
+        }
+    }
+
+    /**
+     * Merges the ref into the current branch with the git CLI, see {@link #pullCli}.
+     * A conflicting merge is aborted.
+     */
+    private static MergeStatus mergeCli(GitCli cli, Repository repo, Path dstDir, String ref) throws IOException {
+        String head = revParse(cli, dstDir, Constants.HEAD);
+
+        try {
+            cli.exec(dstDir, withCommitter(repo, "merge", "--no-edit", ref));
+        } catch (RuntimeException e) {
+            if (repo.readMergeHeads() == null) {
+                throw e;
+            }
+
+            cli.exec(dstDir, "merge", "--abort");
+            return MergeStatus.CONFLICTING;
+        }
+
+        return head.equals(revParse(cli, dstDir, Constants.HEAD)) ? MergeStatus.ALREADY_UP_TO_DATE : MergeStatus.MERGED;
+    }
+
+    private static String revParse(GitCli cli, Path dstDir, String rev) {
+        return cli.exec(dstDir, "rev-parse", "--verify", rev).trim();
+    }
+
+    /**
+     * Commits with the same identity JGit uses: the repository's configuration or the current system user.
+     */
+    private static List<String> withCommitter(Repository repo, String... args) {
+        UserConfig user = repo.getConfig().get(UserConfig.KEY);
+
+        List<String> result = new ArrayList<>(args.length + 4);
+        result.add("-c");
+        result.add("user.name=" + user.getCommitterName());
+        result.add("-c");
+        result.add("user.email=" + user.getCommitterEmail());
+        result.addAll(Arrays.asList(args));
+        return result;
+    }
+
+    /**
+     * JGit ignores the sparse checkout patterns when it updates the working tree (pull, merge),
+     * the files outside of the patterns must be removed afterwards.
+     */
+    private static void reapplySparseCheckout(Path dstDir, Secret secret) {
+        if (GitCli.isSparse(dstDir)) {
+            new GitCli(secret).reapplySparseCheckout(dstDir);
         }
     }
 
@@ -560,8 +815,9 @@ public class GitTask {
             }
         }
 
-        String errorMessage = hideSensitiveData(errorPrefix + ": " + e.getMessage(), secret);
-        log.error("{}: {}", errorPrefix, hideSensitiveData(stacktraceToString(e), secret));
+        Redactor redactor = redactor(in, secret);
+        String errorMessage = redactor.redact(errorPrefix + ": " + e.getMessage());
+        log.error("{}: {}", errorPrefix, stacktraceToString(e, redactor));
 
         if (!isIgnoreErrors(in)) {
             throw new RuntimeException(errorMessage);
@@ -570,9 +826,32 @@ public class GitTask {
         return toResult(false, ResultStatus.FAILURE, errorMessage, changeList, headShaSupplier.get());
     }
 
-    private static String stacktraceToString(Throwable t) {
+    /**
+     * @return a redactor for all known sensitive values: the secret, the private key's password
+     * and the credentials embedded into the repository URL.
+     */
+    private static Redactor redactor(Map<String, Object> in, Secret secret) {
+        List<String> values = new ArrayList<>(Redactor.secretValues(secret));
+
+        Map<String, Object> privateKey = MapUtils.getMap(in, GIT_PRIVATE_KEY, null);
+        if (privateKey != null) {
+            values.add(getString(privateKey, "password"));
+        }
+
+        Object url = in.get(GIT_URL);
+        if (url instanceof String) {
+            values.addAll(Redactor.urlCredentials((String) url));
+        }
+
+        return Redactor.of(values);
+    }
+
+    private static String stacktraceToString(Throwable t, Redactor redactor) {
         StringWriter w = new StringWriter();
-        t.printStackTrace(new PrintWriter(w));
+        // the stack trace is masked while it's written, without an extra copy
+        try (PrintWriter pw = new PrintWriter(redactor.wrap(w))) {
+            t.printStackTrace(pw);
+        }
         return w.toString();
     }
 
@@ -635,7 +914,10 @@ public class GitTask {
         CREATEBRANCH,
         MERGE,
         COMMIT,
-        PULL
+        PULL,
+        FETCH,
+        LSREMOTE,
+        PUSH
     }
 
     public enum ResultStatus {
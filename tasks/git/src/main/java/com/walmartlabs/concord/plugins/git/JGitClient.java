@@ -28,6 +28,7 @@ import com.walmartlabs.concord.common.secret.UsernamePassword;
 import com.walmartlabs.concord.sdk.Secret;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.transport.*;
 import org.eclipse.jgit.util.FS;
 
@@ -36,20 +37,60 @@ import java.util.Properties;
 
 public class JGitClient implements GitClient {
 
+    private final GitMirrorCache mirrorCache;
+    private final CloneOptions cloneOptions;
+
+    public JGitClient() {
+        this(null, CloneOptions.FULL);
+    }
+
+    public JGitClient(GitMirrorCache mirrorCache, CloneOptions cloneOptions) {
+        this.mirrorCache = mirrorCache;
+        this.cloneOptions = cloneOptions;
+    }
+
     @Override
     public void cloneRepo(String uri, String branchName, Secret secret, Path dst) throws Exception {
-        Git repo = Git.cloneRepository()
-                .setURI(uri)
-                .setBranch(branchName)
-                .setDirectory(dst.toFile())
-                .setTransportConfigCallback(createTransportConfigCallback(secret))
-                .call();
-
-        // check if the branch actually exists
-        if (branchName != null) {
-            repo.checkout()
-                    .setName(branchName)
-                    .call();
+        if (mirrorCache == null) {
+            cloneRepo(uri, uri, branchName, secret, dst);
+            return;
+        }
+
+        mirrorCache.withMirror(uri, secret, mirrorDir -> {
+            // the mirror is local, no credentials required
+            cloneRepo(mirrorDir.toUri().toString(), uri, branchName, null, dst);
+            return null;
+        });
+    }
+
+    private void cloneRepo(String sourceUri, String originUri, String branchName, Secret secret, Path dst) throws Exception {
+        if (cloneOptions.requiresCli()) {
+            // JGit doesn't support shallow and partial clones
+            new GitCli(secret).cloneRepo(sourceUri, branchName, cloneOptions, dst);
+        } else {
+            Git.cloneRepository()
+                    .setURI(sourceUri)
+                    .setBranch(branchName)
+                    .setDirectory(dst.toFile())
+                    .setTransportConfigCallback(createTransportConfigCallback(secret))
+                    .call()
+                    .close();
+        }
+
+        try (Git repo = Git.open(dst.toFile())) {
+            if (!sourceUri.equals(originUri)) {
+                StoredConfig config = repo.getRepository().getConfig();
+                config.setString("remote", "origin", "url", originUri);
+                config.save();
+            }
+
+            // check if the branch actually exists
+            // (git CLI fails on unknown branches and JGit's checkout would drop the sparse checkout bits)
+            if (branchName != null && !cloneOptions.requiresCli()) {
+                repo.checkout()
+                        .setName(branchName)
+                        .call();
+            }
         }
     }
 
@@ -0,0 +1,166 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.common.secret.KeyPair;
+import com.walmartlabs.concord.common.secret.UsernamePassword;
+import com.walmartlabs.concord.sdk.Secret;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static org.eclipse.jgit.lib.Constants.HEAD;
+import static org.eclipse.jgit.lib.Constants.R_HEADS;
+import static org.eclipse.jgit.lib.Constants.R_TAGS;
+
+/**
+ * Lists the refs of a remote repository using the git protocol ({@code git ls-remote}),
+ * with a short-lived in-process cache of the results.
+ */
+final class LsRemote {
+
+    private static final Logger log = LoggerFactory.getLogger(LsRemote.class);
+
+    private static final int MAX_CACHE_ENTRIES = 256;
+
+    /**
+     * Remote refs by the repository URL and the credentials' hash.
+     */
+    private static final Map<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+
+    /**
+     * @param ttlMs how long the results can be reused, {@code 0} to always query the remote
+     * @return SHAs of all remote refs by the full ref name, annotated tags are peeled.
+     */
+    static Map<String, String> list(String uri, Secret secret, long ttlMs) throws Exception {
+        String key = uri + " " + hash(secret);
+        long now = System.currentTimeMillis();
+
+        if (ttlMs > 0) {
+            synchronized (cache) {
+                CacheEntry e = cache.get(key);
+                if (e != null && now - e.createdAt < ttlMs) {
+                    log.info("Using cached refs of {} ({}ms old)", uri, now - e.createdAt);
+                    return e.refs;
+                }
+            }
+        }
+
+        log.info("Listing refs of {}...", uri);
+
+        Collection<Ref> refs = Git.lsRemoteRepository()
+                .setRemote(uri)
+                .setTransportConfigCallback(JGitClient.createTransportConfigCallback(secret))
+                .call();
+
+        Map<String, String> result = new HashMap<>(refs.size());
+        for (Ref r : refs) {
+            ObjectId id = r.getPeeledObjectId() != null ? r.getPeeledObjectId() : r.getObjectId();
+            if (id != null) {
+                result.put(r.getName(), id.name());
+            }
+        }
+        result = Collections.unmodifiableMap(result);
+
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(now, result));
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves a ref name the same way git does: a full ref name, a branch, a tag or {@code HEAD}.
+     *
+     * @return the SHA or {@code null} if there's no such ref.
+     */
+    static String resolve(Map<String, String> refs, String name) {
+        String[] candidates = {name, R_HEADS + name, R_TAGS + name};
+        for (String c : candidates) {
+            String sha = refs.get(c);
+            if (sha != null) {
+                return sha;
+            }
+        }
+
+        if (HEAD.equals(name)) {
+            return refs.get(HEAD);
+        }
+
+        return null;
+    }
+
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static String hash(Secret secret) {
+        if (secret == null) {
+            return "-";
+        }
+
+        MessageDigest md = Utils.sha256();
+
+        if (secret instanceof UsernamePassword) {
+            UsernamePassword up = (UsernamePassword) secret;
+            md.update(up.getUsername().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(new String(up.getPassword()).getBytes(StandardCharsets.UTF_8));
+        } else if (secret instanceof KeyPair) {
+            md.update(((KeyPair) secret).getPrivateKey());
+        } else if (secret instanceof TokenSecret) {
+            md.update(((TokenSecret) secret).getToken().getBytes(StandardCharsets.UTF_8));
+        } else {
+            // unknown secret type, don't share the results
+            md.update(String.valueOf(System.identityHashCode(secret)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
+    private static final class CacheEntry {
+
+        private final long createdAt;
+        private final Map<String, String> refs;
+
+        private CacheEntry(long createdAt, Map<String, String> refs) {
+            this.createdAt = createdAt;
+            this.refs = refs;
+        }
+    }
+
+    private LsRemote() {
+    }
+}
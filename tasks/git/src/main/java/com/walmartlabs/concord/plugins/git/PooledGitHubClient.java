@@ -0,0 +1,214 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.*;
+
+/**
+ * {@link GitHubClient} shared between task calls, see {@link GitHubClientRegistry}.
+ * All requests go through a {@link GitHubRateLimiter}.
+ */
+class PooledGitHubClient extends GitHubClient {
+
+    static final String GRAPHQL_URI = "/graphql";
+
+    static PooledGitHubClient create(String apiUrl, GitHubClientRegistry.HostStats stats,
+                                     GitHubResponseCache responseCache, String cacheKeyPrefix) {
+        // same as GitHubClient#createClient
+        String host;
+        try {
+            host = new URL(apiUrl).getHost();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid GitHub API URL: " + apiUrl, e);
+        }
+
+        if (HOST_DEFAULT.equals(host) || HOST_GISTS.equals(host)) {
+            host = HOST_API;
+        }
+
+        return new PooledGitHubClient(host, stats, responseCache, cacheKeyPrefix);
+    }
+
+    private final GitHubClientRegistry.HostStats stats;
+    private final GitHubResponseCache responseCache;
+    private final String cacheKeyPrefix;
+    private final GitHubRateLimiter rateLimiter;
+
+    /**
+     * GraphQL requests have their own rate limit.
+     */
+    private final GitHubRateLimiter graphqlRateLimiter;
+
+    private PooledGitHubClient(String host, GitHubClientRegistry.HostStats stats,
+                               GitHubResponseCache responseCache, String cacheKeyPrefix) {
+        super(host);
+        this.stats = stats;
+        this.responseCache = responseCache;
+        this.cacheKeyPrefix = cacheKeyPrefix;
+        this.rateLimiter = new GitHubRateLimiter(stats);
+        this.graphqlRateLimiter = new GitHubRateLimiter(stats);
+    }
+
+    PooledGitHubClient(String host, int port, String scheme, GitHubClientRegistry.HostStats stats,
+                       GitHubResponseCache responseCache, String cacheKeyPrefix) {
+        super(host, port, scheme);
+        this.stats = stats;
+        this.responseCache = responseCache;
+        this.cacheKeyPrefix = cacheKeyPrefix;
+        this.rateLimiter = new GitHubRateLimiter(stats);
+        this.graphqlRateLimiter = new GitHubRateLimiter(stats);
+    }
+
+    /**
+     * Same as {@link GitHubClient#get(GitHubRequest)}, but with conditional requests
+     * for the previously seen responses and with the rate limit handling.
+     */
+    @Override
+    public GitHubResponse get(GitHubRequest request) throws IOException {
+        return rateLimiter.call(() -> doGet(request));
+    }
+
+    /**
+     * Same as {@link GitHubClient#getStream(GitHubRequest)}, but always sends the requested
+     * media type, e.g. for raw file contents.
+     */
+    @Override
+    public InputStream getStream(GitHubRequest request) throws IOException {
+        return rateLimiter.call(() -> {
+            HttpURLConnection c = createGet(request.generateUri());
+            String accept = request.getResponseContentType();
+            if (accept != null) {
+                c.setRequestProperty(HEADER_ACCEPT, accept);
+            }
+            return getResponseStream(c);
+        });
+    }
+
+    @Override
+    public InputStream postStream(String uri, Object params) throws IOException {
+        return rateLimiterFor(uri).call(() -> super.postStream(uri, params));
+    }
+
+    @Override
+    public <V> V post(String uri, Object params, Type type) throws IOException {
+        return rateLimiterFor(uri).call(() -> super.post(uri, params, type));
+    }
+
+    @Override
+    public <V> V put(String uri, Object params, Type type) throws IOException {
+        return rateLimiter.call(() -> super.put(uri, params, type));
+    }
+
+    @Override
+    public void delete(String uri, Object params) throws IOException {
+        rateLimiter.call(() -> {
+            super.delete(uri, params);
+            return null;
+        });
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(String uri) throws IOException {
+        rateLimiterFor(uri).acquire();
+        stats.onRequest();
+        return super.createConnection(uri);
+    }
+
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        rateLimiterFor(request.getURL().getPath()).update(request);
+        return super.updateRateLimits(request);
+    }
+
+    @Override
+    protected String configureUri(String uri) {
+        // GitHub Enterprise serves GraphQL at /api/graphql, not under the REST API prefix
+        if (prefix != null && GRAPHQL_URI.equals(uri)) {
+            return "/api" + GRAPHQL_URI;
+        }
+        return super.configureUri(uri);
+    }
+
+    private GitHubRateLimiter rateLimiterFor(String uri) {
+        return uri.endsWith(GRAPHQL_URI) ? graphqlRateLimiter : rateLimiter;
+    }
+
+    private GitHubResponse doGet(GitHubRequest request) throws IOException {
+        if (responseCache == null) {
+            return super.get(request);
+        }
+
+        String uri = request.generateUri();
+        String accept = request.getResponseContentType();
+        String key = cacheKeyPrefix + " " + accept + " " + uri;
+
+        GitHubResponseCache.CachedResponse cached = responseCache.get(key);
+
+        HttpURLConnection c = createGet(uri);
+        if (accept != null) {
+            c.setRequestProperty(HEADER_ACCEPT, accept);
+        }
+        if (cached != null) {
+            cached.addValidators(c);
+        }
+
+        int code = c.getResponseCode();
+        updateRateLimits(c);
+
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            stats.onNotModified();
+            return new GitHubResponse(cached.toConnection(c.getURL()), getBody(request, cached.body()));
+        }
+
+        if (isOk(code)) {
+            byte[] body;
+            try (InputStream in = getStream(c)) {
+                body = Utils.readFully(in);
+            }
+
+            GitHubResponseCache.CachedResponse r = GitHubResponseCache.CachedResponse.from(c, body);
+            if (r != null) {
+                responseCache.put(key, r);
+            }
+
+            return new GitHubResponse(c, getBody(request, new ByteArrayInputStream(body)));
+        }
+
+        if (isEmpty(code)) {
+            return new GitHubResponse(c, null);
+        }
+
+        throw createException(getStream(c), code, c.getResponseMessage());
+    }
+}
@@ -0,0 +1,157 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.sdk.Secret;
+import org.eclipse.jgit.api.CreateBranchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.TagOpt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.eclipse.jgit.lib.Constants.R_HEADS;
+import static org.eclipse.jgit.lib.Constants.R_REMOTES;
+
+/**
+ * Updates an existing clone in place: fetches only the new objects and resets
+ * the working tree to the requested branch, tag or commit.
+ */
+final class RepoUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(RepoUpdater.class);
+
+    private static final String REMOTE = "origin";
+
+    static boolean isRepo(Path dir) {
+        return Files.isDirectory(dir.resolve(".git"));
+    }
+
+    /**
+     * Local changes and untracked files (except the ignored ones) are discarded.
+     */
+    static void update(String uri, String ref, Secret secret, Path dst) throws Exception {
+        try (Git git = Git.open(dst.toFile())) {
+            String origin = git.getRepository().getConfig().getString("remote", REMOTE, "url");
+            if (origin == null || !normalize(origin).equals(normalize(uri))) {
+                throw new IllegalStateException("'" + dst.getFileName() + "' is a clone of '" + origin + "', expected '" + uri + "'");
+            }
+        }
+
+        if (GitCli.requiresCli(dst)) {
+            // JGit can't fetch into shallow clones or lazily fetch missing objects of partial clones
+            updateCli(ref, secret, dst);
+        } else {
+            updateJGit(ref, secret, dst);
+        }
+    }
+
+    private static void updateJGit(String ref, Secret secret, Path dst) throws Exception {
+        try (Git git = Git.open(dst.toFile())) {
+            Repository repo = git.getRepository();
+
+            log.info("Fetching new objects from {}...", REMOTE);
+            git.fetch()
+                    .setRemote(REMOTE)
+                    .setRemoveDeletedRefs(true)
+                    .setTagOpt(TagOpt.FETCH_TAGS)
+                    .setTransportConfigCallback(JGitClient.createTransportConfigCallback(secret))
+                    .call();
+
+            String remoteBranch = R_REMOTES + REMOTE + "/" + ref;
+            ObjectId target;
+            if (repo.exactRef(remoteBranch) != null) {
+                boolean exists = repo.exactRef(R_HEADS + ref) != null;
+                git.checkout()
+                        .setName(ref)
+                        .setCreateBranch(!exists)
+                        .setStartPoint(remoteBranch)
+                        .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+                        .setForced(true)
+                        .call();
+                target = repo.resolve(remoteBranch);
+            } else {
+                target = repo.resolve(ref + "^{commit}");
+                if (target == null) {
+                    throw new IllegalArgumentException("Can't find the branch, tag or commit '" + ref + "'");
+                }
+                git.checkout()
+                        .setName(target.name())
+                        .setForced(true)
+                        .call();
+            }
+
+            git.reset()
+                    .setMode(ResetCommand.ResetType.HARD)
+                    .setRef(target.name())
+                    .call();
+
+            git.clean()
+                    .setCleanDirectories(true)
+                    .call();
+
+            log.info("Updated to '{}' ({})", ref, target.name());
+        }
+    }
+
+    private static void updateCli(String ref, Secret secret, Path dst) {
+        GitCli cli = new GitCli(secret);
+        cli.exec(dst, "fetch", "--prune", REMOTE);
+
+        String remoteBranch = R_REMOTES + REMOTE + "/" + ref;
+        if (hasRef(cli, dst, remoteBranch)) {
+            cli.exec(dst, "checkout", "--force", "-B", ref, "--track", remoteBranch);
+        } else {
+            cli.exec(dst, "checkout", "--force", "--detach", ref + "^{commit}");
+        }
+
+        cli.exec(dst, "clean", "-d", "--force");
+    }
+
+    private static boolean hasRef(GitCli cli, Path dst, String ref) {
+        try {
+            cli.exec(dst, "rev-parse", "--verify", "--quiet", ref);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static String normalize(String uri) {
+        String s = uri.trim();
+        while (s.endsWith("/")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        if (s.endsWith(".git")) {
+            s = s.substring(0, s.length() - ".git".length());
+        }
+        return s;
+    }
+
+    private RepoUpdater() {
+    }
+}
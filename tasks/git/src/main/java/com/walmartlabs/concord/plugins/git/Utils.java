@@ -20,15 +20,25 @@ package com.walmartlabs.concord.plugins.git;
  * =====
  */
 
-import com.walmartlabs.concord.common.secret.UsernamePassword;
 import com.walmartlabs.concord.sdk.Secret;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Map;
 
 import static com.walmartlabs.concord.sdk.MapUtils.getString;
 
 public final class Utils {
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static boolean getBoolean(Map<String, Object> in, String k, boolean fallback) {
         Object v = in.get(k);
 
@@ -56,20 +66,62 @@ public final class Utils {
     }
 
     public static String hideSensitiveData(String s, Secret secret) {
-        if (s == null) {
-            return null;
+        return Redactor.of(secret).redact(s);
+    }
+
+    public static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
         }
+    }
+
+    public static MessageDigest sha256() {
+        return digest("SHA-256");
+    }
+
+    /**
+     * @return lowercase hex SHA-256 of the UTF-8 bytes of the specified string.
+     */
+    public static String sha256Hex(String s) {
+        return hex(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return Base64 encoded SHA-256 of the UTF-8 bytes of the specified string.
+     */
+    public static String sha256Base64(String s) {
+        return Base64.getEncoder().encodeToString(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String hex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            result[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(result);
+    }
+
+    public static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(in, out);
+        return out.toByteArray();
+    }
 
-        if (secret instanceof UsernamePassword) {
-            char[] password = ((UsernamePassword) secret).getPassword();
-            if (password != null) {
-                s = s.replace(new String(password), "***");
-            }
-        } else if (secret instanceof TokenSecret) {
-            String token = ((TokenSecret) secret).getToken();
-            s = s.replace(token, "***");
+    /**
+     * @return the number of copied bytes.
+     */
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buf)) > 0) {
+            out.write(buf, 0, read);
+            total += read;
         }
-        return s;
+        return total;
     }
 
     private Utils() {
@@ -0,0 +1,261 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.jgit.dircache.*;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.treewalk.*;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.eclipse.jgit.lib.FileMode.GITLINK;
+import static org.eclipse.jgit.lib.FileMode.TYPE_GITLINK;
+import static org.eclipse.jgit.lib.FileMode.TYPE_TREE;
+
+/**
+ * Stages all changes of the working tree ({@code git add --all}) and collects the paths
+ * that differ from {@code HEAD}, using a single tree walk.
+ * <p>
+ * Unlike {@link org.eclipse.jgit.api.AddCommand}, which hashes every file, only the files with
+ * stat data different from the index (or racily clean entries) are hashed. Files outside of
+ * the sparse checkout (skip-worktree entries) are left as is.
+ */
+final class WorkTreeStager {
+
+    /**
+     * @param paths files or directories to stage, relative to the repository's root.
+     *              All files are staged if {@code null} or empty.
+     * @return paths of the staged files that differ from {@code HEAD}, including the files
+     * staged earlier outside of {@code paths}.
+     */
+    static Set<String> stage(Repository repo, List<String> paths) throws IOException {
+        Set<String> changes = new HashSet<>();
+
+        DirCache dc = repo.lockDirCache();
+        try (ObjectInserter inserter = repo.newObjectInserter();
+             ObjectReader reader = inserter.newReader();
+             NameConflictTreeWalk tw = new NameConflictTreeWalk(repo, reader)) {
+
+            tw.setOperationType(TreeWalk.OperationType.CHECKIN_OP);
+
+            DirCacheBuilder builder = dc.builder();
+            int dcIdx = tw.addTree(new DirCacheBuildIterator(builder));
+
+            FileTreeIterator wt = new FileTreeIterator(repo);
+            wt.setDirCacheIterator(tw, dcIdx);
+            int wtIdx = tw.addTree(wt);
+
+            int headIdx;
+            ObjectId head = repo.resolve(Constants.HEAD + "^{tree}");
+            if (head != null) {
+                headIdx = tw.addTree(head);
+            } else {
+                headIdx = tw.addTree(new EmptyTreeIterator());
+            }
+
+            List<String> filter = normalize(paths);
+            if (!filter.isEmpty()) {
+                tw.setFilter(PathFilterGroup.createFromStrings(filter));
+            }
+
+            byte[] lastPath = null;
+            while (tw.next()) {
+                DirCacheIterator c = tw.getTree(dcIdx, DirCacheIterator.class);
+                WorkingTreeIterator f = tw.getTree(wtIdx, WorkingTreeIterator.class);
+                AbstractTreeIterator h = tw.getTree(headIdx, AbstractTreeIterator.class);
+
+                DirCacheEntry entry = c != null ? c.getDirCacheEntry() : null;
+
+                if (entry != null && entry.getStage() > 0 && lastPath != null && Arrays.equals(lastPath, tw.getRawPath())) {
+                    // the other stages of an already resolved conflict
+                    continue;
+                }
+
+                if (c == null && f != null && f.isEntryIgnored()) {
+                    // untracked and ignored, don't walk into directories like target/ or node_modules/
+                    continue;
+                }
+
+                if (tw.isSubtree() && !tw.isDirectoryFileConflict()) {
+                    tw.enterSubtree();
+                    continue;
+                }
+
+                if (f != null && f.getEntryRawMode() == TYPE_TREE && f.getIndexFileMode(c) != GITLINK
+                        || f != null && f.getEntryRawMode() == TYPE_GITLINK && f.getIndexFileMode(c) == FileMode.TREE) {
+                    tw.enterSubtree();
+                    continue;
+                }
+
+                lastPath = tw.getRawPath();
+
+                DirCacheEntry result = update(c, f, tw, inserter, reader);
+                if (result != null) {
+                    builder.add(result);
+                }
+
+                if (isChanged(h, result)) {
+                    changes.add(tw.getPathString());
+                }
+            }
+
+            inserter.flush();
+            builder.commit();
+
+            if (!filter.isEmpty()) {
+                // entries staged earlier outside of the specified paths are committed too
+                changes.addAll(diffIndex(dc, head, reader));
+            }
+        } finally {
+            dc.unlock();
+        }
+
+        return changes;
+    }
+
+    /**
+     * @return paths of the index entries that differ from {@code HEAD}. Only the object IDs are
+     * compared, the working tree is not scanned.
+     */
+    private static Set<String> diffIndex(DirCache dc, ObjectId head, ObjectReader reader) throws IOException {
+        Set<String> result = new HashSet<>();
+        try (TreeWalk tw = new TreeWalk(reader)) {
+            tw.addTree(new DirCacheIterator(dc));
+            if (head != null) {
+                tw.addTree(head);
+            } else {
+                tw.addTree(new EmptyTreeIterator());
+            }
+            tw.setRecursive(true);
+            tw.setFilter(TreeFilter.ANY_DIFF);
+
+            while (tw.next()) {
+                result.add(tw.getPathString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the new index entry or {@code null} if the path must be removed from the index.
+     */
+    private static DirCacheEntry update(DirCacheIterator c, WorkingTreeIterator f, TreeWalk tw,
+                                        ObjectInserter inserter, ObjectReader reader) throws IOException {
+
+        DirCacheEntry entry = c != null ? c.getDirCacheEntry() : null;
+        boolean conflict = entry != null && entry.getStage() > 0;
+
+        if (f == null) {
+            // removed from the working tree, keep the files outside of the sparse checkout and submodules
+            if (entry != null && !conflict && (entry.isSkipWorkTree() || entry.getFileMode() == GITLINK)) {
+                return entry;
+            }
+            return null;
+        }
+
+        if (entry == null && f.isEntryIgnored()) {
+            return null;
+        }
+
+        if (entry != null && !conflict && (entry.isAssumeValid() || entry.isSkipWorkTree())) {
+            return entry;
+        }
+
+        FileMode mode = f.getIndexFileMode(c);
+
+        // compares the stat data, the content is hashed only for racily clean entries
+        if (entry != null && !conflict && entry.getRawMode() == mode.getBits() && !f.isModified(entry, false, reader)) {
+            return entry;
+        }
+
+        DirCacheEntry result = new DirCacheEntry(tw.getRawPath());
+        result.setFileMode(mode);
+
+        if (mode == GITLINK) {
+            result.setObjectId(f.getEntryObjectId());
+            return result;
+        }
+
+        result.setLength(f.getEntryLength());
+        result.setLastModified(f.getEntryLastModifiedInstant());
+
+        long len = f.getEntryContentLength();
+        try (InputStream in = f.openEntryStream()) {
+            result.setObjectId(inserter.insert(Constants.OBJ_BLOB, len, in));
+        }
+
+        return result;
+    }
+
+    private static boolean isChanged(AbstractTreeIterator head, DirCacheEntry entry) {
+        if (head == null) {
+            return entry != null;
+        }
+
+        if (entry == null) {
+            return true;
+        }
+
+        return head.getEntryRawMode() != entry.getRawMode() || !head.getEntryObjectId().equals(entry.getObjectId());
+    }
+
+    /**
+     * @return the normalized paths or an empty list if the whole working tree must be scanned.
+     */
+    private static List<String> normalize(List<String> paths) {
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> result = new ArrayList<>(paths.size());
+        for (String p : paths) {
+            String s = p != null ? p.trim().replace('\\', '/') : "";
+            while (s.startsWith("./")) {
+                s = s.substring(2);
+            }
+            while (s.startsWith("/")) {
+                s = s.substring(1);
+            }
+            while (s.endsWith("/")) {
+                s = s.substring(0, s.length() - 1);
+            }
+
+            if (s.isEmpty() || s.equals(".")) {
+                return Collections.emptyList();
+            }
+
+            if (s.equals("..") || s.startsWith("../") || s.contains("/../")) {
+                throw new IllegalArgumentException("Invalid path: '" + p + "'. Expected a path relative to the repository's root");
+            }
+
+            result.add(s);
+        }
+        return result;
+    }
+
+    private WorkTreeStager() {
+    }
+}
@@ -22,6 +22,7 @@ package com.walmartlabs.concord.plugins.git.v1;
 
 import com.walmartlabs.concord.plugins.git.GitHubTask;
 import com.walmartlabs.concord.sdk.Context;
+import com.walmartlabs.concord.sdk.ContextUtils;
 import com.walmartlabs.concord.sdk.InjectVariable;
 import com.walmartlabs.concord.sdk.Task;
 
@@ -32,19 +33,17 @@ import java.util.Map;
 @Named("github")
 public class GitHubTaskV1 implements Task {
 
-    private final GitHubTask delegate;
-
     @InjectVariable("githubParams")
     private Map<String, Object> defaults;
 
     @Inject
     public GitHubTaskV1() {
-        this.delegate = new GitHubTask();
     }
 
     @Override
     public void execute(Context ctx) {
-        Map<String, Object> result = delegate.execute(ctx.toMap(), defaults);
+        Map<String, Object> result = new GitHubTask(ContextUtils.getWorkDir(ctx))
+                .execute(ctx.toMap(), defaults);
         result.forEach(ctx::setVariable);
     }
 }
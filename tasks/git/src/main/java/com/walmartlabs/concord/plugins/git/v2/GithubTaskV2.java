@@ -34,12 +34,13 @@ import java.util.Map;
 @SuppressWarnings("unused")
 public class GithubTaskV2 implements Task {
 
-    private final GitHubTask delegate = new GitHubTask();
+    private final GitHubTask delegate;
 
     private final Map<String, Object> defaults;
 
     @Inject
     public GithubTaskV2(Context ctx) {
+        this.delegate = new GitHubTask(ctx.workingDirectory());
         this.defaults = ctx.defaultVariables().toMap();
     }
 
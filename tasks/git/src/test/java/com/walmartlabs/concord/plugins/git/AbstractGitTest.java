@@ -0,0 +1,75 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provides a temporary directory for each test and helpers to create local repositories.
+ */
+public abstract class AbstractGitTest {
+
+    protected Path tmpDir;
+
+    @BeforeEach
+    public void createTmpDir() throws Exception {
+        this.tmpDir = Files.createTempDirectory("test");
+    }
+
+    @AfterEach
+    public void deleteTmpDir() throws Exception {
+        if (this.tmpDir != null && Files.exists(this.tmpDir)) {
+            IOUtils.deleteRecursively(tmpDir);
+        }
+    }
+
+    /**
+     * Commits the file to the repository, the repository is created if it doesn't exist.
+     *
+     * @return SHA of the new commit.
+     */
+    protected static String commit(Path repo, String fileName, String content) throws Exception {
+        try (Git git = Files.exists(repo) ? Git.open(repo.toFile()) : Git.init().setInitialBranch("master").setDirectory(repo.toFile()).call()) {
+            Files.createDirectories(repo.resolve(fileName).getParent());
+            Files.write(repo.resolve(fileName), content.getBytes());
+            git.add().addFilepattern(fileName).call();
+            return git.commit()
+                    .setSign(false)
+                    .setMessage("add " + fileName)
+                    .setCommitter("test", "test@example.com")
+                    .setAuthor("test", "test@example.com")
+                    .call()
+                    .name();
+        }
+    }
+
+    protected static String head(Path repo) throws Exception {
+        try (Git git = Git.open(repo.toFile())) {
+            return git.getRepository().resolve("HEAD").name();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubBatchTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatch() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(Collections.singletonMap("commitSHA", "sha" + i));
+        }
+        items.add(Collections.singletonMap("commitSHA", "bad"));
+
+        Map<String, Object> in = new HashMap<>();
+        in.put("action", "batch");
+        in.put("batchAction", "addStatus");
+        in.put("org", "myOrg");
+        in.put("parallelism", 3);
+        in.put("items", items);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Map<String, Object> result = GitHubBatch.run(in, (action, itemIn) -> {
+            int n = running.incrementAndGet();
+            maxRunning.accumulateAndGet(n, Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+
+            assertEquals(GitHubTask.Action.ADDSTATUS, action);
+            assertEquals("myOrg", itemIn.get("org"));
+            assertFalse(itemIn.containsKey("items"));
+
+            if ("bad".equals(itemIn.get("commitSHA"))) {
+                throw new RuntimeException("boom");
+            }
+            return Collections.singletonMap("sha", itemIn.get("commitSHA"));
+        });
+
+        assertEquals(20, result.get("succeeded"));
+        assertEquals(1, result.get("failed"));
+        assertTrue(maxRunning.get() <= 3);
+
+        List<Map<String, Object>> results = (List<Map<String, Object>>) result.get("results");
+        assertEquals(21, results.size());
+        assertEquals("sha5", ((Map<String, Object>) results.get(5).get("result")).get("sha"));
+        assertEquals(false, results.get(20).get("ok"));
+        assertEquals("boom", results.get(20).get("error"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testItemApiUrl() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("apiUrl", "not a url");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put("action", "batch");
+        in.put("batchAction", "getLatestSHA");
+        in.put("apiUrl", "https://localhost:1/api/v3");
+        in.put("accessToken", "iddqd");
+        in.put("org", "myOrg");
+        in.put("repo", "myRepo");
+        in.put("items", Collections.singletonList(item));
+
+        Map<String, Object> result = new GitHubTask(null).execute(in, Collections.emptyMap());
+
+        List<Map<String, Object>> results = (List<Map<String, Object>>) result.get("results");
+        assertEquals(false, results.get(0).get("ok"));
+        assertTrue(((String) results.get(0).get("error")).contains("not a url"), (String) results.get(0).get("error"));
+    }
+
+    @Test
+    public void testInvalidItems() {
+        Map<String, Object> in = new HashMap<>();
+        in.put("items", Collections.singletonList(Collections.singletonMap("action", "batch")));
+        assertThrows(IllegalArgumentException.class, () -> GitHubBatch.run(in, (a, i) -> Collections.emptyMap()));
+
+        in.put("items", Collections.singletonList(Collections.emptyMap()));
+        assertThrows(IllegalArgumentException.class, () -> GitHubBatch.run(in, (a, i) -> Collections.emptyMap()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubClientRegistryTest {
+
+    @Test
+    public void testReuse() {
+        GitHubClientRegistry registry = new GitHubClientRegistry(10, Long.MAX_VALUE);
+
+        GitHubClient a = registry.get("https://api.github.com", "token-a");
+        assertSame(a, registry.get("https://api.github.com", "token-a"));
+        assertNotSame(a, registry.get("https://api.github.com", "token-b"));
+        assertNotSame(a, registry.get("https://github.example.com/api/v3", "token-a"));
+
+        Map<String, Object> stats = registry.stats().get("api.github.com");
+        assertEquals(2, stats.get("activeClients"));
+        assertEquals(2L, stats.get("createdClients"));
+        assertEquals(1L, stats.get("reusedClients"));
+    }
+
+    @Test
+    public void testEviction() {
+        GitHubClientRegistry registry = new GitHubClientRegistry(2, Long.MAX_VALUE);
+
+        GitHubClient a = registry.get("https://api.github.com", "token-a");
+        registry.get("https://api.github.com", "token-b");
+        registry.get("https://api.github.com", "token-c");
+
+        // the least recently used client is gone
+        assertNotSame(a, registry.get("https://api.github.com", "token-a"));
+        assertEquals(2L, registry.stats().get("api.github.com").get("evictedClients"));
+
+        GitHubClientRegistry idle = new GitHubClientRegistry(10, 0);
+        GitHubClient b = idle.get("https://api.github.com", "token-b");
+        assertNotSame(b, idle.get("https://api.github.com", "token-b"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStatsOutput() {
+        GitHubClientRegistry.getInstance().get("https://github.example.com/api/v3", "token-a");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put("action", "getClientStats");
+        in.put("apiUrl", "https://github.example.com/api/v3");
+
+        Map<String, Object> result = new GitHubTask(null).execute(in, Collections.emptyMap());
+        Map<String, Map<String, Object>> stats = (Map<String, Map<String, Object>>) result.get("stats");
+        assertTrue((Integer) stats.get("github.example.com").get("activeClients") > 0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.common.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubContentCacheTest {
+
+    private Path tmpDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.tmpDir = Files.createTempDirectory("test");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (this.tmpDir != null && Files.exists(this.tmpDir)) {
+            IOUtils.deleteRecursively(tmpDir);
+        }
+    }
+
+    @Test
+    public void testImmutableRef() {
+        assertTrue(GitHubContentCache.isImmutableRef("0123456789abcdef0123456789abcdef01234567"));
+        assertFalse(GitHubContentCache.isImmutableRef("0123456"));
+        assertFalse(GitHubContentCache.isImmutableRef("master"));
+        assertFalse(GitHubContentCache.isImmutableRef(null));
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        GitHubContentCache cache = new GitHubContentCache(1024);
+
+        String key = GitHubContentCache.key("https://api.github.com", "token-a", "org/repo", "raw", "abc", "a.txt");
+
+        // disabled until a directory is set
+        cache.put(key, "hello".getBytes(StandardCharsets.UTF_8));
+        assertNull(cache.get(key));
+
+        cache.enable(tmpDir.resolve("cache"));
+        cache.put(key, "hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals("hello", new String(cache.get(key), StandardCharsets.UTF_8));
+
+        Path dst = tmpDir.resolve("out/a.txt");
+        assertTrue(cache.copyTo(key, dst));
+        assertEquals("hello", new String(Files.readAllBytes(dst), StandardCharsets.UTF_8));
+
+        assertFalse(cache.copyTo(GitHubContentCache.key("https://api.github.com", "token-a", "other"), dst));
+
+        // the content is never shared between tokens
+        assertNull(cache.get(GitHubContentCache.key("https://api.github.com", "token-b", "org/repo", "raw", "abc", "a.txt")));
+        assertNull(cache.get(GitHubContentCache.key("https://api.github.com", null, "org/repo", "raw", "abc", "a.txt")));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Path cacheDir = tmpDir.resolve("cache");
+        GitHubContentCache cache = new GitHubContentCache(100);
+        cache.enable(cacheDir);
+
+        cache.put("a", new byte[40]);
+        Files.setLastModifiedTime(cacheDir.resolve("a.content"), FileTime.fromMillis(1000));
+        cache.put("b", new byte[40]);
+        cache.put("c", new byte[40]);
+
+        // the least recently used entries are removed, the new one is kept
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        long total;
+        try (Stream<Path> s = Files.list(cacheDir)) {
+            total = s.mapToLong(p -> p.toFile().length()).sum();
+        }
+        assertTrue(total <= 100);
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        GitHubContentCache cache = new GitHubContentCache(100);
+        cache.enable(tmpDir.resolve("cache"));
+
+        // the replaced entries are not counted
+        cache.put("a", new byte[40]);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+}
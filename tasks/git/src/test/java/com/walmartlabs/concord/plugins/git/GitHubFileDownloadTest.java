@@ -0,0 +1,103 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.common.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubFileDownloadTest {
+
+    // git hash-object of "hello\n"
+    private static final String HELLO_SHA = "ce013625030ba8dba906f756967f9e9ca394464a";
+
+    private HttpServer server;
+    private Path tmpDir;
+    private String accept;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tmpDir = Files.createTempDirectory("test");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            accept = exchange.getRequestHeaders().getFirst("Accept");
+
+            byte[] body = "hello\n".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop(0);
+        IOUtils.deleteRecursively(tmpDir);
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        Path dst = tmpDir.resolve("a/b/hello.txt");
+        Map<String, Object> result = GitHubFileDownload.download(client(), "/repos/org/repo/contents/hello.txt",
+                Collections.singletonMap("ref", "master"), dst, HELLO_SHA);
+
+        assertEquals(GitHubFileDownload.RAW_CONTENT_TYPE, accept);
+        assertEquals("hello\n", new String(Files.readAllBytes(dst), StandardCharsets.UTF_8));
+        assertEquals(6L, result.get("size"));
+        assertEquals(HELLO_SHA, result.get("sha"));
+    }
+
+    @Test
+    public void testShaMismatch() throws Exception {
+        Path dst = tmpDir.resolve("hello.txt");
+        assertThrows(IOException.class, () -> GitHubFileDownload.download(client(), "/repos/org/repo/contents/hello.txt",
+                null, dst, "0000000000000000000000000000000000000000"));
+
+        // nothing is left behind
+        assertFalse(Files.exists(dst));
+        try (Stream<Path> s = Files.list(tmpDir)) {
+            assertEquals(0, s.count());
+        }
+    }
+
+    private PooledGitHubClient client() {
+        return new PooledGitHubClient("localhost", server.getAddress().getPort(), "http",
+                new GitHubClientRegistry.HostStats("localhost"), null, "test");
+    }
+}
@@ -0,0 +1,133 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubPRSnapshotTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String RESPONSE = "{\"data\": {\"repository\": {\"pullRequest\": {" +
+            "\"number\": 7, \"state\": \"OPEN\", \"headRefOid\": \"abc\", \"author\": {\"login\": \"octocat\"}," +
+            "\"commits\": {\"totalCount\": 1, \"nodes\": [{\"commit\": {\"oid\": \"abc\", \"messageHeadline\": \"fix\", \"author\": {\"name\": \"a\", \"email\": \"a@example.com\"}}}]}," +
+            "\"head\": {\"nodes\": [{\"commit\": {" +
+            "\"status\": {\"state\": \"SUCCESS\", \"contexts\": [{\"context\": \"ci\", \"state\": \"SUCCESS\"}]}," +
+            "\"checkSuites\": {\"nodes\": [{\"app\": {\"slug\": \"actions\"}, \"checkRuns\": {\"nodes\": [{\"name\": \"build\", \"status\": \"COMPLETED\", \"conclusion\": \"SUCCESS\"}]}}]}" +
+            "}}]}}}}}";
+
+    private HttpServer server;
+    private final List<String> paths = new ArrayList<>();
+    private final List<Map<String, Object>> requests = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            try (InputStream in = exchange.getRequestBody()) {
+                requests.add(objectMapper.readValue(in, Map.class));
+            }
+
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSnapshot() throws Exception {
+        PooledGitHubClient client = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http",
+                new GitHubClientRegistry.HostStats("localhost"), null, "test");
+
+        Set<String> fields = GitHubPRSnapshot.parseFields(null);
+        Map<String, Object> result;
+        try (InputStream in = client.postStream(PooledGitHubClient.GRAPHQL_URI, GitHubPRSnapshot.request("org", "repo", 7, fields, 10, 10))) {
+            result = GitHubPRSnapshot.toResult(objectMapper.readValue(in, Map.class), fields);
+        }
+
+        // one request, at the enterprise GraphQL endpoint
+        assertEquals(Collections.singletonList("/api/graphql"), paths);
+
+        Map<String, Object> pr = (Map<String, Object>) result.get("pr");
+        assertEquals(7, pr.get("number"));
+        assertEquals("octocat", pr.get("author"));
+        assertFalse(pr.containsKey("commits"));
+
+        List<Map<String, Object>> commits = (List<Map<String, Object>>) result.get("commits");
+        assertEquals("abc", commits.get(0).get("sha"));
+
+        Map<String, Object> statuses = (Map<String, Object>) result.get("statuses");
+        assertEquals("SUCCESS", statuses.get("state"));
+
+        List<Map<String, Object>> checkRuns = (List<Map<String, Object>>) result.get("checkRuns");
+        assertEquals("build", checkRuns.get(0).get("name"));
+        assertEquals("actions", checkRuns.get(0).get("app"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFieldSelection() {
+        Map<String, Object> request = GitHubPRSnapshot.request("org", "repo", 7,
+                GitHubPRSnapshot.parseFields(Collections.singletonList("statuses")), 10, 10);
+
+        String query = (String) request.get("query");
+        assertTrue(query.contains("status {"));
+        assertFalse(query.contains("checkSuites"));
+        // unused variables are rejected by GitHub
+        assertFalse(query.contains("$commits"));
+        assertFalse(((Map<String, Object>) request.get("variables")).containsKey("commits"));
+
+        assertThrows(IllegalArgumentException.class, () -> GitHubPRSnapshot.parseFields(Collections.singletonList("reviews")));
+    }
+
+    @Test
+    public void testErrors() {
+        Map<String, Object> response = Collections.singletonMap("errors",
+                Collections.singletonList(Collections.singletonMap("message", "Could not resolve to a PullRequest")));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> GitHubPRSnapshot.toResult(response, GitHubPRSnapshot.parseFields(null)));
+        assertTrue(e.getMessage().contains("Could not resolve"));
+    }
+}
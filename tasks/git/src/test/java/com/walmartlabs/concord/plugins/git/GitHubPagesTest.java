@@ -0,0 +1,132 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.egit.github.core.RepositoryBranch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubPagesTest {
+
+    private static final int TOTAL = 7;
+    private static final Type BRANCH_LIST_TYPE = new TypeToken<List<RepositoryBranch>>() {
+    }.getType();
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+
+            Map<String, String> q = new HashMap<>();
+            for (String kv : exchange.getRequestURI().getQuery().split("&")) {
+                String[] s = kv.split("=");
+                q.put(s[0], s[1]);
+            }
+            int page = Integer.parseInt(q.get("page"));
+            int perPage = Integer.parseInt(q.get("per_page"));
+
+            StringBuilder body = new StringBuilder("[");
+            for (int i = (page - 1) * perPage; i < Math.min(page * perPage, TOTAL); i++) {
+                if (body.length() > 1) {
+                    body.append(",");
+                }
+                body.append("{\"name\": \"b").append(i).append("\"}");
+            }
+            body.append("]");
+
+            if (page * perPage < TOTAL) {
+                String next = "http://localhost:" + server.getAddress().getPort() + exchange.getRequestURI().getPath()
+                        + "?per_page=" + perPage + "&page=" + (page + 1);
+                exchange.getResponseHeaders().add("Link", "<" + next + ">; rel=\"next\"");
+            }
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testLimitAndCursor() throws Exception {
+        PooledGitHubClient client = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http",
+                new GitHubClientRegistry.HostStats("localhost"), null, "test");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitHubPages.LIMIT_KEY, 3);
+        in.put(GitHubPages.PAGE_SIZE_KEY, 2);
+
+        List<String> names = new ArrayList<>();
+        String cursor = fetch(client, in, names);
+        assertEquals(Arrays.asList("b0", "b1", "b2"), names);
+        assertEquals("2:1", cursor);
+        // only the required pages are fetched
+        assertEquals(2, requests.get());
+
+        names.clear();
+        in.put(GitHubPages.CURSOR_KEY, cursor);
+        cursor = fetch(client, in, names);
+        assertEquals(Arrays.asList("b3", "b4", "b5"), names);
+        assertEquals("4", cursor);
+
+        names.clear();
+        in.put(GitHubPages.CURSOR_KEY, cursor);
+        cursor = fetch(client, in, names);
+        assertEquals(Collections.singletonList("b6"), names);
+        assertNull(cursor);
+    }
+
+    @Test
+    public void testInvalidParams() {
+        assertThrows(IllegalArgumentException.class, () -> GitHubPages.Params.from(Collections.singletonMap(GitHubPages.PAGE_SIZE_KEY, 1000)));
+        assertThrows(IllegalArgumentException.class, () -> GitHubPages.Params.from(Collections.singletonMap(GitHubPages.CURSOR_KEY, "abc")));
+        assertFalse(GitHubPages.Params.from(Collections.emptyMap()).isPaged());
+    }
+
+    private static String fetch(PooledGitHubClient client, Map<String, Object> in, List<String> names) throws Exception {
+        return GitHubPages.<RepositoryBranch>fetch(client, "/repos/org/repo/branches", null, BRANCH_LIST_TYPE,
+                GitHubPages.Params.from(in), b -> names.add(b.getName()));
+    }
+}
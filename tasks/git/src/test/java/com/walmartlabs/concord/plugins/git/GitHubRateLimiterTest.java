@@ -0,0 +1,105 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.RepositoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubRateLimiterTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            int n = requests.incrementAndGet();
+
+            String path = exchange.getRequestURI().getPath();
+            int code;
+            String body;
+            if (path.endsWith("/missing")) {
+                code = 404;
+                body = "{\"message\": \"Not Found\"}";
+            } else if (n == 1) {
+                // secondary rate limit
+                code = 403;
+                body = "{\"message\": \"You have exceeded a secondary rate limit\"}";
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            } else if (n == 2) {
+                code = 429;
+                body = "{\"message\": \"Too Many Requests\"}";
+            } else {
+                code = 200;
+                body = "{\"name\": \"repo\"}";
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRetryThrottled() throws Exception {
+        GitHubClientRegistry.HostStats stats = new GitHubClientRegistry.HostStats("localhost");
+        PooledGitHubClient client = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http", stats, null, "test");
+
+        Repository repo = new RepositoryService(client).getRepository("org", "repo");
+        assertEquals("repo", repo.getName());
+        assertEquals(3, requests.get());
+
+        assertEquals(2L, stats.toMap(0).get("throttled"));
+    }
+
+    @Test
+    public void testNoRetryOnErrors() {
+        GitHubClientRegistry.HostStats stats = new GitHubClientRegistry.HostStats("localhost");
+        PooledGitHubClient client = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http", stats, null, "test");
+
+        RequestException e = assertThrows(RequestException.class, () -> new RepositoryService(client).getRepository("org", "missing"));
+        assertEquals(404, e.getStatus());
+        assertEquals(1, requests.get());
+    }
+}
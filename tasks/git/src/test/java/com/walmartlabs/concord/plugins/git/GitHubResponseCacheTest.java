@@ -0,0 +1,124 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpServer;
+import com.walmartlabs.concord.common.IOUtils;
+import org.eclipse.egit.github.core.RepositoryBranch;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitHubResponseCacheTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    private HttpServer server;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private Path tmpDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tmpDir = Files.createTempDirectory("test");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            fullResponses.incrementAndGet();
+
+            byte[] body = "[{\"name\": \"master\"}]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop(0);
+        IOUtils.deleteRecursively(tmpDir);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConditionalRequests() throws Exception {
+        GitHubClientRegistry.HostStats stats = new GitHubClientRegistry.HostStats("localhost");
+        GitHubResponseCache cache = new GitHubResponseCache(1024 * 1024, 1024 * 1024);
+        PooledGitHubClient client = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http", stats, cache, "test");
+
+        for (int i = 0; i < 3; i++) {
+            GitHubResponse resp = client.get(branchesRequest());
+            List<RepositoryBranch> branches = (List<RepositoryBranch>) resp.getBody();
+            assertEquals("master", branches.get(0).getName());
+        }
+
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        // too small to keep anything in memory
+        GitHubResponseCache cache = new GitHubResponseCache(256, 1024 * 1024);
+        cache.enableSpill(tmpDir);
+
+        GitHubClientRegistry.HostStats stats = new GitHubClientRegistry.HostStats("localhost");
+        PooledGitHubClient a = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http", stats, cache, "a");
+        PooledGitHubClient b = new PooledGitHubClient("localhost", server.getAddress().getPort(), "http", stats, cache, "b");
+
+        a.get(branchesRequest());
+        b.get(branchesRequest());
+        assertEquals(2, fullResponses.get());
+
+        // the spilled responses are revalidated
+        a.get(branchesRequest());
+        assertEquals(2, fullResponses.get());
+    }
+
+    private static GitHubRequest branchesRequest() {
+        return new GitHubRequest()
+                .setUri("/repos/org/repo/branches")
+                .setType(new TypeToken<List<RepositoryBranch>>() {
+                }.getType());
+    }
+}
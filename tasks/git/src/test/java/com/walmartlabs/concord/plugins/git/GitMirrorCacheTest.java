@@ -0,0 +1,95 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitMirrorCacheTest extends AbstractGitTest {
+
+    @Test
+    public void testCloneThroughMirror() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        String originUri = origin.toUri().toString();
+        String firstSha = commit(origin, "a.txt", "one");
+
+        GitMirrorCache cache = new GitMirrorCache(tmpDir.resolve("cache"), Long.MAX_VALUE);
+        JGitClient client = new JGitClient(cache, CloneOptions.FULL);
+
+        Path first = tmpDir.resolve("first");
+        client.cloneRepo(originUri, "master", null, first);
+        assertEquals(firstSha, head(first));
+        assertEquals(originUri, originUrl(first));
+
+        // the mirror must pick up new commits incrementally
+        String secondSha = commit(origin, "b.txt", "two");
+
+        Path second = tmpDir.resolve("second");
+        client.cloneRepo(originUri, "master", null, second);
+        assertEquals(secondSha, head(second));
+        assertTrue(Files.exists(second.resolve("b.txt")));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Path originA = tmpDir.resolve("originA");
+        Path originB = tmpDir.resolve("originB");
+        commit(originA, "a.txt", "one");
+        commit(originB, "b.txt", "two");
+
+        Path cacheDir = tmpDir.resolve("cache");
+        GitMirrorCache cache = new GitMirrorCache(cacheDir, 1);
+
+        cache.withMirror(originA.toUri().toString(), null, mirrorDir -> null);
+        cache.withMirror(originB.toUri().toString(), null, mirrorDir -> null);
+
+        // only the most recently used mirror and its lock file are kept
+        long mirrors;
+        try (Stream<Path> s = Files.list(cacheDir)) {
+            mirrors = s.filter(p -> p.getFileName().toString().endsWith(".git")).count();
+        }
+        assertEquals(1, mirrors);
+
+        long lockFiles;
+        try (Stream<Path> s = Files.list(cacheDir)) {
+            lockFiles = s.filter(p -> p.getFileName().toString().endsWith(".lock")).count();
+        }
+        assertEquals(1, lockFiles);
+
+        // the evicted mirror is created again
+        cache.withMirror(originA.toUri().toString(), null, mirrorDir -> {
+            assertTrue(Files.exists(mirrorDir.resolve("HEAD")));
+            return null;
+        });
+    }
+
+    private static String originUrl(Path repo) throws Exception {
+        try (Git git = Git.open(repo.toFile())) {
+            return git.getRepository().getConfig().getString("remote", "origin", "url");
+        }
+    }
+}
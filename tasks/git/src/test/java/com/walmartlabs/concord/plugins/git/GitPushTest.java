@@ -0,0 +1,202 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+public class GitPushTest extends AbstractGitTest {
+
+    private Path remote;
+    private Path dst;
+    private String remoteSha;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path seed = tmpDir.resolve("seed");
+        commit(seed, "a.txt", "one");
+
+        remote = tmpDir.resolve("remote.git");
+        Git.cloneRepository()
+                .setURI(seed.toUri().toString())
+                .setDirectory(remote.toFile())
+                .setBare(true)
+                .call()
+                .close();
+
+        dst = tmpDir.resolve("dst");
+        new JGitClient().cloneRepo(remote.toUri().toString(), "master", null, dst);
+        remoteSha = head(remote);
+    }
+
+    @Test
+    public void testBranchesAndTag() throws Exception {
+        String sha = commit(dst, "b.txt", "two");
+        try (Git git = Git.open(dst.toFile())) {
+            git.branchCreate().setName("feature/a").call();
+            git.branchCreate().setName("feature/b").call();
+            git.tag().setName("v1").setAnnotated(false).call();
+        }
+
+        Map<String, Object> in = input("feature/a", "feature/b");
+        in.put(GitTask.GIT_TAGS, Collections.singletonList("v1"));
+
+        Map<String, Object> result = push(in);
+        assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+        assertEquals(sha, result.get(GitTask.HEAD_SHA));
+
+        Map<String, Object> refs = (Map<String, Object>) result.get(GitTask.GIT_REFS);
+        assertEquals(3, refs.size());
+        for (String ref : Arrays.asList("refs/heads/feature/a", "refs/heads/feature/b", "refs/tags/v1")) {
+            assertRef(refs, ref, true, "OK");
+            assertEquals(sha, resolve(remote, ref));
+        }
+
+        // pushing the same refs again changes nothing
+        result = push(in);
+        assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+        assertRef((Map<String, Object>) result.get(GitTask.GIT_REFS), "refs/heads/feature/a", true, "UP_TO_DATE");
+    }
+
+    @Test
+    public void testNonFastForward() throws Exception {
+        String otherSha = diverge();
+
+        Map<String, Object> in = input("master", "feature");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> push(in));
+        assertTrue(e.getMessage().contains("refs/heads/master (REJECTED_NONFASTFORWARD)"), e.getMessage());
+
+        // the other refs are pushed
+        assertEquals(otherSha, resolve(remote, "refs/heads/master"));
+        assertEquals(head(dst), resolve(remote, "refs/heads/feature"));
+    }
+
+    @Test
+    public void testNonFastForwardIgnoreErrors() throws Exception {
+        String otherSha = diverge();
+
+        Map<String, Object> in = input("master", "feature");
+        in.put(GitTask.IGNORE_ERRORS_KEY, true);
+
+        Map<String, Object> result = push(in);
+        assertEquals(GitTask.ResultStatus.FAILURE, result.get(GitTask.STATUS_KEY));
+        assertEquals(false, result.get(GitTask.OK_KEY));
+        assertTrue(((String) result.get(GitTask.ERROR_KEY)).contains("refs/heads/master (REJECTED_NONFASTFORWARD)"));
+
+        Map<String, Object> refs = (Map<String, Object>) result.get(GitTask.GIT_REFS);
+        assertEquals(2, refs.size());
+        assertRef(refs, "refs/heads/master", false, "REJECTED_NONFASTFORWARD");
+        assertRef(refs, "refs/heads/feature", true, "OK");
+
+        assertEquals(otherSha, resolve(remote, "refs/heads/master"));
+        assertEquals(head(dst), resolve(remote, "refs/heads/feature"));
+    }
+
+    @Test
+    public void testAtomic() throws Exception {
+        String otherSha = diverge();
+
+        Map<String, Object> in = input("master", "feature");
+        in.put(GitTask.GIT_ATOMIC, true);
+        in.put(GitTask.IGNORE_ERRORS_KEY, true);
+
+        Map<String, Object> result = push(in);
+        assertEquals(GitTask.ResultStatus.FAILURE, result.get(GitTask.STATUS_KEY));
+
+        // a single rejected ref rejects the whole push
+        Map<String, Object> refs = (Map<String, Object>) result.get(GitTask.GIT_REFS);
+        assertEquals(2, refs.size());
+        assertRef(refs, "refs/heads/master", false, "REJECTED_NONFASTFORWARD");
+        assertEquals(false, ((Map<String, Object>) refs.get("refs/heads/feature")).get(GitTask.OK_KEY));
+
+        assertEquals(otherSha, resolve(remote, "refs/heads/master"));
+        assertNull(resolve(remote, "refs/heads/feature"));
+
+        // without the rejected ref the atomic push succeeds
+        Map<String, Object> retry = input("feature");
+        retry.put(GitTask.GIT_ATOMIC, true);
+
+        result = push(retry);
+        assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+        assertRef((Map<String, Object>) result.get(GitTask.GIT_REFS), "refs/heads/feature", true, "OK");
+        assertEquals(head(dst), resolve(remote, "refs/heads/feature"));
+    }
+
+    /**
+     * Pushes a commit to the remote's master from another clone and commits a different change
+     * to the local master, creates the local branch "feature" at that commit.
+     *
+     * @return SHA of the remote's master.
+     */
+    private String diverge() throws Exception {
+        Path other = tmpDir.resolve("other");
+        new JGitClient().cloneRepo(remote.toUri().toString(), "master", null, other);
+        String otherSha = commit(other, "b.txt", "other");
+        try (Git git = Git.open(other.toFile())) {
+            git.push().setRemote("origin").add("master").call();
+        }
+        assertNotEquals(remoteSha, resolve(remote, "refs/heads/master"));
+
+        commit(dst, "b.txt", "local");
+        try (Git git = Git.open(dst.toFile())) {
+            git.branchCreate().setName("feature").call();
+        }
+        return otherSha;
+    }
+
+    private Map<String, Object> input(String... refSpecs) {
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.PUSH.name());
+        in.put(GitTask.GIT_URL, remote.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+        in.put(GitTask.GIT_REF_SPECS, Arrays.asList(refSpecs));
+        return in;
+    }
+
+    private Map<String, Object> push(Map<String, Object> in) throws Exception {
+        return new GitTask(null, tmpDir).execute(in, Collections.emptyMap());
+    }
+
+    private static void assertRef(Map<String, Object> refs, String ref, boolean ok, String status) {
+        Map<String, Object> m = (Map<String, Object>) refs.get(ref);
+        assertNotNull(m, ref);
+        assertEquals(ok, m.get(GitTask.OK_KEY), ref);
+        assertEquals(status, m.get(GitTask.STATUS_KEY), ref);
+    }
+
+    private static String resolve(Path repo, String ref) throws Exception {
+        try (Git git = Git.open(repo.toFile())) {
+            Repository r = git.getRepository();
+            return r.exactRef(ref) != null ? r.exactRef(ref).getObjectId().name() : null;
+        }
+    }
+}
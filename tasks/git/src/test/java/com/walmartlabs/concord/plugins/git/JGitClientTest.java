@@ -0,0 +1,368 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JGitClientTest extends AbstractGitTest {
+
+    @Test
+    public void testShallowClone() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a.txt", "one");
+        String lastSha = commit(origin, "b.txt", "two");
+
+        JGitClient client = new JGitClient(null, new CloneOptions(1, null, null, null));
+
+        Path dst = tmpDir.resolve("dst");
+        client.cloneRepo(origin.toUri().toString(), "master", null, dst);
+        assertEquals(lastSha, head(dst));
+
+        try (Git git = Git.open(dst.toFile())) {
+            int count = 0;
+            for (RevCommit ignored : git.log().call()) {
+                count++;
+            }
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void testSparseCheckout() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a/x/1.txt", "one");
+        commit(origin, "b/2.txt", "two");
+        commit(origin, "root.txt", "root");
+
+        JGitClient client = new JGitClient(null, new CloneOptions(0, null, null, Collections.singletonList("/a/x/")));
+
+        Path dst = tmpDir.resolve("dst");
+        client.cloneRepo(origin.toUri().toString(), "master", null, dst);
+
+        assertTrue(Files.exists(dst.resolve("a/x/1.txt")));
+        assertTrue(Files.exists(dst.resolve("root.txt")));
+        assertFalse(Files.exists(dst.resolve("b")));
+
+        // commit and pull must not touch the files outside of the sparse checkout patterns
+        Files.write(dst.resolve("a/x/3.txt"), "three".getBytes());
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.COMMIT.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+        in.put(GitTask.GIT_BASE_BRANCH, "master");
+        in.put(GitTask.GIT_COMMIT_MSG, "add 3.txt");
+        in.put(GitTask.GIT_COMMITTER_USERNAME, "test");
+        in.put(GitTask.GIT_COMMITTER_EMAIL, "test@example.com");
+
+        GitTask task = new GitTask(null, tmpDir);
+        Map<String, Object> result = task.execute(in, Collections.emptyMap());
+        assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+        assertEquals(Collections.singleton("a/x/3.txt"), result.get(GitTask.CHANGE_LIST_KEY));
+
+        try (Git git = Git.open(dst.toFile())) {
+            Repository repo = git.getRepository();
+            try (TreeWalk tw = TreeWalk.forPath(repo, "b/2.txt", repo.parseCommit(repo.resolve("HEAD")).getTree())) {
+                assertNotNull(tw, "files outside of the sparse checkout must be kept in the commit");
+            }
+        }
+
+        commit(origin, "b/4.txt", "four");
+
+        in.put(GitTask.ACTION_KEY, GitTask.Action.PULL.name());
+        in.put(GitTask.GIT_PULL_REMOTE_BRANCH, "master");
+        task.execute(in, Collections.emptyMap());
+
+        assertFalse(Files.exists(dst.resolve("b")));
+        assertTrue(Files.exists(dst.resolve("a/x/3.txt")));
+    }
+
+    @Test
+    public void testReuseExisting() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a.txt", "one");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.CLONE.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+
+        GitTask task = new GitTask(null, tmpDir);
+        task.execute(in, Collections.emptyMap());
+
+        Path dst = tmpDir.resolve("dst");
+        Files.write(dst.resolve("a.txt"), "local changes".getBytes());
+        Files.write(dst.resolve("untracked.txt"), "untracked".getBytes());
+        String lastSha = commit(origin, "b.txt", "two");
+
+        in.put(GitTask.ACTION_KEY, GitTask.Action.FETCH.name());
+        Map<String, Object> result = task.execute(in, Collections.emptyMap());
+        assertEquals(lastSha, result.get(GitTask.HEAD_SHA));
+        assertEquals("one", new String(Files.readAllBytes(dst.resolve("a.txt"))));
+        assertTrue(Files.exists(dst.resolve("b.txt")));
+        assertFalse(Files.exists(dst.resolve("untracked.txt")));
+
+        // the same branch can be created again in a reused clone
+        in.put(GitTask.ACTION_KEY, GitTask.Action.CREATEBRANCH.name());
+        in.put(GitTask.GIT_NEW_BRANCH_NAME, "feature");
+        in.put(GitTask.GIT_REUSE_EXISTING, true);
+        task.execute(in, Collections.emptyMap());
+        task.execute(in, Collections.emptyMap());
+
+        try (Git git = Git.open(dst.toFile())) {
+            assertEquals("feature", git.getRepository().getBranch());
+        }
+
+        // a clone of another repository is never reused
+        in.put(GitTask.GIT_URL, tmpDir.resolve("other").toUri().toString());
+        assertThrows(RuntimeException.class, () -> task.execute(in, Collections.emptyMap()));
+        assertTrue(Files.exists(dst.resolve("b.txt")));
+    }
+
+    @Test
+    public void testFailedReuseKeepsClone() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a.txt", "one");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.CLONE.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+
+        GitTask task = new GitTask(null, tmpDir);
+        task.execute(in, Collections.emptyMap());
+
+        Path dst = tmpDir.resolve("dst");
+        Files.write(dst.resolve("a.txt"), "local changes".getBytes());
+
+        // an origin mismatch
+        in.put(GitTask.GIT_URL, tmpDir.resolve("other").toUri().toString());
+        for (GitTask.Action a : Arrays.asList(GitTask.Action.FETCH, GitTask.Action.CLONE)) {
+            in.put(GitTask.ACTION_KEY, a.name());
+            in.put(GitTask.GIT_REUSE_EXISTING, true);
+            assertThrows(RuntimeException.class, () -> task.execute(in, Collections.emptyMap()));
+        }
+
+        // a missing ref
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_BASE_BRANCH, "no-such-branch");
+        assertThrows(RuntimeException.class, () -> task.execute(in, Collections.emptyMap()));
+
+        // the working copy is untouched
+        assertTrue(RepoUpdater.isRepo(dst));
+        assertEquals("local changes", new String(Files.readAllBytes(dst.resolve("a.txt"))));
+    }
+
+    @Test
+    public void testReuseExistingShallow() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a.txt", "one");
+        commit(origin, "b.txt", "two");
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.CLONE.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+        in.put(GitClientFactory.DEPTH_KEY, 1);
+
+        GitTask task = new GitTask(null, tmpDir);
+        task.execute(in, Collections.emptyMap());
+
+        String lastSha = commit(origin, "c.txt", "three");
+
+        in.put(GitTask.ACTION_KEY, GitTask.Action.FETCH.name());
+        Map<String, Object> result = task.execute(in, Collections.emptyMap());
+        assertEquals(lastSha, result.get(GitTask.HEAD_SHA));
+        assertTrue(Files.exists(tmpDir.resolve("dst/c.txt")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPushMany() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        commit(origin, "a.txt", "one");
+
+        Path dst = tmpDir.resolve("dst");
+        new JGitClient().cloneRepo(origin.toUri().toString(), "master", null, dst);
+        String sha = commit(dst, "b.txt", "two");
+        try (Git git = Git.open(dst.toFile())) {
+            git.branchCreate().setName("release/1").call();
+            git.branchCreate().setName("release/2").call();
+            git.tag().setName("v1").setAnnotated(false).call();
+        }
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.PUSH.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_WORKING_DIR, "dst");
+        in.put(GitTask.GIT_REF_SPECS, Arrays.asList("release/1", "release/2", "HEAD:refs/heads/release/3"));
+        in.put(GitTask.GIT_TAGS, Collections.singletonList("v1"));
+
+        Map<String, Object> result = new GitTask(null, tmpDir).execute(in, Collections.emptyMap());
+        assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+
+        Map<String, Object> refs = (Map<String, Object>) result.get(GitTask.GIT_REFS);
+        assertEquals(4, refs.size());
+        assertEquals("OK", ((Map<String, Object>) refs.get("refs/heads/release/1")).get(GitTask.STATUS_KEY));
+
+        try (Git git = Git.open(origin.toFile())) {
+            Repository repo = git.getRepository();
+            assertEquals(sha, repo.resolve("refs/heads/release/1").name());
+            assertEquals(sha, repo.resolve("refs/heads/release/2").name());
+            assertEquals(sha, repo.resolve("refs/heads/release/3").name());
+            assertEquals(sha, repo.resolve("refs/tags/v1").name());
+        }
+    }
+
+    @Test
+    public void testPartialClone() throws Exception {
+        for (String filter : Arrays.asList("blob:none", "tree:0")) {
+            Path origin = tmpDir.resolve("origin-" + filter.replace(':', '-'));
+            commit(origin, "a/1.txt", "one");
+            commit(origin, "b/2.txt", "1\n2\n3\n");
+            try (Git git = Git.open(origin.toFile())) {
+                StoredConfig config = git.getRepository().getConfig();
+                config.setBoolean("uploadpack", null, "allowFilter", true);
+                config.save();
+
+                // the merge base and the feature's blob are left out of the clone
+                git.checkout().setCreateBranch(true).setName("feature").call();
+                commit(origin, "b/2.txt", "one\n2\n3\n");
+                git.checkout().setName("master").call();
+                git.checkout().setCreateBranch(true).setName("conflict").call();
+                commit(origin, "b/2.txt", "1\n2\nTHREE\n");
+                git.checkout().setName("master").call();
+                commit(origin, "b/2.txt", "1\n2\nthree\n");
+            }
+
+            String dstName = "dst-" + filter.replace(':', '-');
+            Path dst = tmpDir.resolve(dstName);
+
+            Map<String, Object> in = new HashMap<>();
+            in.put(GitTask.ACTION_KEY, GitTask.Action.CLONE.name());
+            in.put(GitTask.GIT_URL, origin.toUri().toString());
+            in.put(GitTask.GIT_WORKING_DIR, dstName);
+            in.put(GitTask.GIT_BASE_BRANCH, "master");
+            in.put(GitClientFactory.FILTER_KEY, filter);
+
+            GitTask task = new GitTask(null, tmpDir);
+            assertEquals(GitTask.ResultStatus.SUCCESS, task.execute(in, Collections.emptyMap()).get(GitTask.STATUS_KEY));
+            assertTrue(GitCli.isPartial(dst));
+
+            Files.write(dst.resolve("a/1.txt"), "changed".getBytes());
+            Files.write(dst.resolve("b/3.txt"), "three".getBytes());
+
+            in.put(GitTask.ACTION_KEY, GitTask.Action.COMMIT.name());
+            in.put(GitTask.GIT_COMMIT_MSG, "change");
+            in.put(GitTask.GIT_COMMITTER_USERNAME, "test");
+            in.put(GitTask.GIT_COMMITTER_EMAIL, "test@example.com");
+            in.put(GitTask.GIT_PUSH_CHANGES_TO_ORIGIN, true);
+
+            Map<String, Object> result = task.execute(in, Collections.emptyMap());
+            assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+            assertEquals(new HashSet<>(Arrays.asList("a/1.txt", "b/3.txt")), result.get(GitTask.CHANGE_LIST_KEY));
+            assertEquals(head(dst), head(origin));
+
+            // merges fetch the objects left out of the clone
+            Map<String, Object> merge = new HashMap<>();
+            merge.put(GitTask.ACTION_KEY, GitTask.Action.MERGE.name());
+            merge.put(GitTask.GIT_URL, origin.toUri().toString());
+            merge.put(GitTask.GIT_WORKING_DIR, "merge-" + dstName);
+            merge.put(GitTask.GIT_SOURCE_BRANCH, "feature");
+            merge.put(GitTask.GIT_DESTINATION_BRANCH, "master");
+            merge.put(GitClientFactory.FILTER_KEY, filter);
+
+            result = task.execute(merge, Collections.emptyMap());
+            assertEquals(GitTask.ResultStatus.SUCCESS, result.get(GitTask.STATUS_KEY));
+            assertTrue(GitCli.isPartial(tmpDir.resolve("merge-" + dstName)));
+            assertEquals(head(origin), result.get(GitTask.HEAD_SHA));
+
+            merge.put(GitTask.GIT_REUSE_EXISTING, true);
+            result = task.execute(merge, Collections.emptyMap());
+            assertEquals(GitTask.ResultStatus.NO_CHANGES, result.get(GitTask.STATUS_KEY));
+
+            merge.put(GitTask.GIT_SOURCE_BRANCH, "conflict");
+            merge.put(GitTask.IGNORE_ERRORS_KEY, true);
+            result = task.execute(merge, Collections.emptyMap());
+            assertEquals(GitTask.ResultStatus.FAILURE, result.get(GitTask.STATUS_KEY));
+            assertEquals(head(origin), head(tmpDir.resolve("merge-" + dstName)));
+            assertEquals("one\n2\nthree\n", new String(Files.readAllBytes(tmpDir.resolve("merge-" + dstName).resolve("b/2.txt"))));
+
+            // a local commit makes the pull merge
+            commit(dst, "a/1.txt", "local");
+
+            in.put(GitTask.ACTION_KEY, GitTask.Action.PULL.name());
+            in.put(GitTask.GIT_PULL_REMOTE_BRANCH, "master");
+            task.execute(in, Collections.emptyMap());
+
+            assertEquals("local", new String(Files.readAllBytes(dst.resolve("a/1.txt"))));
+            assertEquals("one\n2\nthree\n", new String(Files.readAllBytes(dst.resolve("b/2.txt"))));
+            assertTrue(Files.exists(dst.resolve("b/3.txt")));
+            try (Git git = Git.open(dst.toFile())) {
+                RevCommit pulled = git.log().setMaxCount(1).call().iterator().next();
+                assertEquals(2, pulled.getParentCount());
+                assertEquals(head(origin), pulled.getParent(1).name());
+            }
+        }
+    }
+
+    @Test
+    public void testAskpass() throws Exception {
+        String password = "p\\ns'w\\0rd\\";
+        Path askpass = GitCli.createAskpass("user\\1", password, new ArrayList<>());
+        try {
+            assertEquals("user\\1", askpass(askpass, "Username for 'https://example.com': "));
+            assertEquals(password, askpass(askpass, "Password for 'https://user@example.com': "));
+        } finally {
+            Files.delete(askpass);
+        }
+    }
+
+    @Test
+    public void testInvalidFilter() {
+        assertThrows(IllegalArgumentException.class, () -> new CloneOptions(0, null, "blob:all", null));
+    }
+
+    private static String askpass(Path script, String prompt) throws Exception {
+        Process p = new ProcessBuilder("/bin/sh", script.toString(), prompt).start();
+        String result = new String(IOUtils.toByteArray(p.getInputStream()), StandardCharsets.UTF_8);
+        assertEquals(0, p.waitFor());
+        return result.substring(0, result.length() - 1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LsRemoteTest extends AbstractGitTest {
+
+    @BeforeEach
+    public void setUp() {
+        LsRemote.clearCache();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLsRemote() throws Exception {
+        Path origin = tmpDir.resolve("origin");
+        String firstSha = commit(origin, "a.txt", "one");
+        try (Git git = Git.open(origin.toFile())) {
+            git.tag().setName("v1").setAnnotated(true).setMessage("v1").setSigned(false).call();
+        }
+
+        Map<String, Object> in = new HashMap<>();
+        in.put(GitTask.ACTION_KEY, GitTask.Action.LSREMOTE.name());
+        in.put(GitTask.GIT_URL, origin.toUri().toString());
+        in.put(GitTask.GIT_REFS, Arrays.asList("master", "v1", "refs/heads/master", "unknown"));
+
+        GitTask task = new GitTask(null, tmpDir);
+        Map<String, Object> result = task.execute(in, Collections.emptyMap());
+
+        Map<String, Object> refs = (Map<String, Object>) result.get(GitTask.GIT_REFS);
+        assertEquals(firstSha, refs.get("master"));
+        assertEquals(firstSha, refs.get("refs/heads/master"));
+        // annotated tags are peeled
+        assertEquals(firstSha, refs.get("v1"));
+        assertTrue(refs.containsKey("unknown"));
+        assertNull(refs.get("unknown"));
+
+        // cached
+        String secondSha = commit(origin, "b.txt", "two");
+        result = task.execute(in, Collections.emptyMap());
+        assertEquals(firstSha, ((Map<String, Object>) result.get(GitTask.GIT_REFS)).get("master"));
+
+        in.put(GitTask.GIT_CACHE_TTL, 0);
+        result = task.execute(in, Collections.emptyMap());
+        assertEquals(secondSha, ((Map<String, Object>) result.get(GitTask.GIT_REFS)).get("master"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.walmartlabs.concord.plugins.git;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkTreeStagerTest extends AbstractGitTest {
+
+    @Test
+    public void testStageAll() throws Exception {
+        try (Git git = init()) {
+            Files.write(tmpDir.resolve("a.txt"), "changed".getBytes());
+            Files.delete(tmpDir.resolve("dir/b.txt"));
+            Files.write(tmpDir.resolve("c.txt"), "new".getBytes());
+            Files.write(tmpDir.resolve("ignored.log"), "ignored".getBytes());
+
+            Set<String> changes = WorkTreeStager.stage(git.getRepository(), null);
+            assertEquals(new HashSet<>(Arrays.asList("a.txt", "dir/b.txt", "c.txt")), changes);
+
+            Status status = git.status().call();
+            assertEquals(Collections.singleton("a.txt"), status.getChanged());
+            assertEquals(Collections.singleton("dir/b.txt"), status.getRemoved());
+            assertEquals(Collections.singleton("c.txt"), status.getAdded());
+            assertTrue(status.getUntracked().isEmpty());
+            assertTrue(status.getModified().isEmpty());
+            assertTrue(status.getMissing().isEmpty());
+        }
+    }
+
+    @Test
+    public void testStagePaths() throws Exception {
+        try (Git git = init()) {
+            Files.write(tmpDir.resolve("a.txt"), "changed".getBytes());
+            Files.write(tmpDir.resolve("dir/c.txt"), "new".getBytes());
+
+            Set<String> changes = WorkTreeStager.stage(git.getRepository(), Collections.singletonList("./dir/"));
+            assertEquals(Collections.singleton("dir/c.txt"), changes);
+
+            Status status = git.status().call();
+            assertEquals(Collections.singleton("dir/c.txt"), status.getAdded());
+            // outside of the specified paths
+            assertEquals(Collections.singleton("a.txt"), status.getModified());
+        }
+    }
+
+    @Test
+    public void testStagedOutsideOfPaths() throws Exception {
+        try (Git git = init()) {
+            Files.write(tmpDir.resolve("a.txt"), "changed".getBytes());
+            git.add().addFilepattern("a.txt").call();
+            Files.write(tmpDir.resolve("dir/c.txt"), "new".getBytes());
+
+            Set<String> changes = WorkTreeStager.stage(git.getRepository(), Collections.singletonList("dir"));
+            assertEquals(new HashSet<>(Arrays.asList("a.txt", "dir/c.txt")), changes);
+
+            Status status = git.status().call();
+            assertEquals(Collections.singleton("a.txt"), status.getChanged());
+            assertEquals(Collections.singleton("dir/c.txt"), status.getAdded());
+        }
+    }
+
+    @Test
+    public void testIgnoredDirectory() throws Exception {
+        try (Git git = init()) {
+            Files.write(tmpDir.resolve(".gitignore"), "*.log\ntarget/\n".getBytes());
+            for (int i = 0; i < 50; i++) {
+                Path dir = Files.createDirectories(tmpDir.resolve("target/classes/pkg" + i));
+                for (int j = 0; j < 100; j++) {
+                    Files.write(dir.resolve("F" + j + ".class"), ("class " + i + "/" + j).getBytes());
+                }
+            }
+            Files.write(tmpDir.resolve("c.txt"), "new".getBytes());
+
+            Set<String> changes = WorkTreeStager.stage(git.getRepository(), null);
+            assertEquals(new HashSet<>(Arrays.asList(".gitignore", "c.txt")), changes);
+
+            Status status = git.status().call();
+            assertEquals(Collections.singleton(".gitignore"), status.getChanged());
+            assertEquals(Collections.singleton("c.txt"), status.getAdded());
+            assertTrue(status.getUntracked().isEmpty());
+            assertEquals(0, git.getRepository().readDirCache().getEntriesWithin("target").length);
+        }
+    }
+
+    @Test
+    public void testNoChanges() throws Exception {
+        try (Git git = init()) {
+            assertTrue(WorkTreeStager.stage(git.getRepository(), null).isEmpty());
+            assertTrue(git.status().call().isClean());
+        }
+    }
+
+    private Git init() throws Exception {
+        Git git = Git.init().setInitialBranch("master").setDirectory(tmpDir.toFile()).call();
+        Files.createDirectories(tmpDir.resolve("dir"));
+        Files.write(tmpDir.resolve("a.txt"), "a".getBytes());
+        Files.write(tmpDir.resolve("dir/b.txt"), "b".getBytes());
+        Files.write(tmpDir.resolve(".gitignore"), "*.log\n".getBytes());
+        git.add().addFilepattern(".").call();
+        git.commit()
+                .setSign(false)
+                .setMessage("initial")
+                .setCommitter("test", "test@example.com")
+                .setAuthor("test", "test@example.com")
+                .call();
+        return git;
+    }
+}